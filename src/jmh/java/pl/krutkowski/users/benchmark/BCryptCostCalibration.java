@@ -0,0 +1,48 @@
+package pl.krutkowski.users.benchmark;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+import static pl.krutkowski.users.benchmark.BenchmarkFixtures.PASSWORD;
+
+public final class BCryptCostCalibration {
+
+    private static final long DEFAULT_TARGET_MILLIS = 250;
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 16;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 9;
+
+    private BCryptCostCalibration() {
+    }
+
+    public static void main(String[] args) {
+        long targetMillis = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_TARGET_MILLIS;
+        int recommended = MIN_STRENGTH;
+        System.out.printf("Target verification latency: %d ms%n", targetMillis);
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            double medianMillis = medianMatchesMillis(strength);
+            System.out.printf("strength %2d: %8.2f ms%n", strength, medianMillis);
+            if (medianMillis > targetMillis)
+                break;
+            recommended = strength;
+        }
+        System.out.printf("Recommended password-hashing.bcrypt-strength: %d%n", recommended);
+    }
+
+    private static double medianMatchesMillis(int strength) {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(strength);
+        String encodedPassword = passwordEncoder.encode(PASSWORD);
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            passwordEncoder.matches(PASSWORD, encodedPassword);
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            passwordEncoder.matches(PASSWORD, encodedPassword);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_ROUNDS / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,32 @@
+package pl.krutkowski.users.benchmark;
+
+import pl.krutkowski.users.domain.User;
+
+import java.util.Date;
+
+import static pl.krutkowski.users.enumeration.Role.ROLE_SUPER_ADMIN;
+
+final class BenchmarkFixtures {
+
+    static final String SECRET = "3ZpZuH8yU4vwf9bfbY+lF8gG9Kyj37xftmZEGzVuBBk=";
+    static final String PASSWORD = "Xk2mQ9pLr7";
+
+    private BenchmarkFixtures() {
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setUserId("1234567890");
+        user.setFirstName("Bench");
+        user.setLastName("Mark");
+        user.setUsername("benchmark");
+        user.setEmail("benchmark@example.com");
+        user.setJoinDate(new Date());
+        user.setActive(true);
+        user.setNotLocked(true);
+        user.setRole(ROLE_SUPER_ADMIN.name());
+        user.setAuthorities(ROLE_SUPER_ADMIN.getAuthorities());
+        return user;
+    }
+}
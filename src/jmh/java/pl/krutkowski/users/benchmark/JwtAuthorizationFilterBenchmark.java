@@ -0,0 +1,53 @@
+package pl.krutkowski.users.benchmark;
+
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.filter.JWTAuthorizationFilter;
+import pl.krutkowski.users.utility.JTWTokenProvider;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static pl.krutkowski.users.benchmark.BenchmarkFixtures.SECRET;
+import static pl.krutkowski.users.constant.SecurityConstant.TOKEN_PREFIX;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthorizationFilterBenchmark {
+
+    @Param({"/api/v1/user/list", "/api/v1/user/image/profile/benchmark"})
+    public String requestUri;
+
+    private JWTAuthorizationFilter filter;
+    private String authorizationHeader;
+
+    @Setup
+    public void setUp() {
+        JTWTokenProvider tokenProvider = new JTWTokenProvider(SECRET);
+        filter = new JWTAuthorizationFilter(tokenProvider);
+        authorizationHeader = TOKEN_PREFIX + tokenProvider.generateToken(new UserPrinciple(BenchmarkFixtures.user()));
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+        request.addHeader(AUTHORIZATION, authorizationHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,52 @@
+package pl.krutkowski.users.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.openjdk.jmh.annotations.*;
+import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.domain.VerifiedToken;
+import pl.krutkowski.users.utility.JTWTokenProvider;
+
+import java.util.concurrent.TimeUnit;
+
+import static pl.krutkowski.users.benchmark.BenchmarkFixtures.SECRET;
+import static pl.krutkowski.users.constant.SecurityConstant.K_RUTKOWSKI;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JTWTokenProvider tokenProvider;
+    private JWTVerifier verifier;
+    private UserPrinciple userPrinciple;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = new JTWTokenProvider(SECRET);
+        verifier = JWT.require(Algorithm.HMAC512(SECRET.getBytes())).withIssuer(K_RUTKOWSKI).build();
+        userPrinciple = new UserPrinciple(BenchmarkFixtures.user());
+        token = tokenProvider.generateToken(userPrinciple);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return tokenProvider.generateToken(userPrinciple);
+    }
+
+    @Benchmark
+    public DecodedJWT verifyToken() {
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyTokenCached() {
+        return tokenProvider.verifyToken(token);
+    }
+}
@@ -0,0 +1,65 @@
+package pl.krutkowski.users.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.krutkowski.users.utility.PrefixIndex;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Sample-time mode reports the p99 of a suggestion; the setup prints the packed size for a million usernames and
+ * a million emails.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefixIndexBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int PENDING_CHANGES = 10_000;
+    private static final int LIMIT = 10;
+    private static final String[] NAMES = {"kowalski", "nowak", "wisniewska", "user", "krutkowski", "zielinski"};
+
+    @Param({"k", "kowal", "user12"})
+    public String prefix;
+
+    private PrefixIndex usernames;
+    private PrefixIndex emails;
+
+    @Setup
+    public void setUp() {
+        usernames = new PrefixIndex();
+        emails = new PrefixIndex();
+        usernames.rebuild(IntStream.range(0, USERS).mapToObj(PrefixIndexBenchmark::username));
+        emails.rebuild(IntStream.range(0, USERS).mapToObj(i -> username(i) + "@example.com"));
+        System.out.printf("%nPacked bytes per million: usernames %.1f MB, emails %.1f MB%n",
+                usernames.packedBytes() / 1e6 * 1_000_000 / USERS, emails.packedBytes() / 1e6 * 1_000_000 / USERS);
+        // Keep a realistic backlog of uncompacted writes in the read path
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < PENDING_CHANGES; i++) {
+            if (random.nextBoolean())
+                usernames.add("new" + username(random.nextInt(USERS)));
+            else
+                usernames.remove(username(random.nextInt(USERS)));
+        }
+    }
+
+    @Benchmark
+    public List<String> suggestUsername() {
+        return usernames.suggest(prefix, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> suggestEmail() {
+        return emails.suggest(prefix, LIMIT);
+    }
+
+    private static String username(int i) {
+        return NAMES[i % NAMES.length] + i;
+    }
+}
@@ -0,0 +1,94 @@
+package pl.krutkowski.users.benchmark;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.openjdk.jmh.annotations.*;
+import pl.krutkowski.users.utility.SmtpTransportPool;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second over SMTPS to an in-process GreenMail server, sending through the pool against opening,
+ * authenticating and closing a connection for every message as the outbox used to.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(SmtpThroughputBenchmark.SENDERS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmtpThroughputBenchmark {
+
+    static final int SENDERS = 4;
+    private static final String PROTOCOL = "smtps";
+    private static final String USERNAME = "bench";
+    private static final String PASSWORD = "bench";
+    private static final String RECIPIENT = "bench@example.com";
+
+    private GreenMail greenMail;
+    private Session session;
+    private SmtpTransportPool pool;
+    private int port;
+
+    @Setup
+    public void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTPS);
+        greenMail.start();
+        greenMail.setUser(RECIPIENT, USERNAME, PASSWORD);
+        port = ServerSetupTest.SMTPS.getPort();
+        Properties props = new Properties();
+        props.put("mail.smtps.auth", "true");
+        // GreenMail serves a self-signed certificate
+        props.put("mail.smtps.ssl.trust", "*");
+        session = Session.getInstance(props, null);
+        pool = new SmtpTransportPool(session, PROTOCOL, "localhost", port, USERNAME, PASSWORD,
+                SENDERS, 100, Duration.ofSeconds(30));
+    }
+
+    @TearDown(Level.Iteration)
+    public void purge() throws Exception {
+        greenMail.purgeEmailFromAllMailboxes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+        greenMail.stop();
+    }
+
+    @Benchmark
+    public void pooled() throws MessagingException {
+        pool.send(message());
+    }
+
+    @Benchmark
+    public void connectPerMessage() throws MessagingException {
+        Message message = message();
+        Transport transport = session.getTransport(PROTOCOL);
+        try {
+            transport.connect("localhost", port, USERNAME, PASSWORD);
+            transport.sendMessage(message, message.getAllRecipients());
+        } finally {
+            transport.close();
+        }
+    }
+
+    private Message message() throws MessagingException {
+        Message message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("support@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(RECIPIENT));
+        message.setSubject("Benchmark");
+        message.setText("Hello, \n \n Your new account password is: Secret123\n \n The Support Team");
+        message.saveChanges();
+        return message;
+    }
+}
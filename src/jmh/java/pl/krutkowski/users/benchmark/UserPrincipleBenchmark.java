@@ -0,0 +1,29 @@
+package pl.krutkowski.users.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+import pl.krutkowski.users.domain.UserPrinciple;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserPrincipleBenchmark {
+
+    private UserPrinciple userPrinciple;
+
+    @Setup
+    public void setUp() {
+        userPrinciple = new UserPrinciple(BenchmarkFixtures.user());
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return userPrinciple.getAuthorities();
+    }
+}
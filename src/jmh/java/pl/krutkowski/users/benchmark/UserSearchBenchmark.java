@@ -0,0 +1,144 @@
+package pl.krutkowski.users.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.*;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs against a Flyway-migrated database (BENCH_DB_URL, BENCH_DB_USER, BENCH_DB_PASSWORD, defaulting to the
+ * application.yml datasource) and seeds it with SEEDED_USERS users named seed*, once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSearchBenchmark {
+
+    private static final int SEEDED_USERS = 1_000_000;
+    private static final int PAGE_SIZE = 50;
+    private static final String SEED_PREFIX = "seed";
+
+    private static final String SEARCH_SQL = """
+            SELECT id, user_id, first_name, last_name, username, email, role, is_active, is_not_locked, last_login_date_display
+            FROM users_app_table
+            WHERE id > ?
+              AND (lower(username) LIKE ? ESCAPE '!' OR lower(email) LIKE ? ESCAPE '!'
+                   OR lower(first_name) LIKE ? ESCAPE '!' OR lower(last_name) LIKE ? ESCAPE '!')
+              AND role = ?
+            ORDER BY id
+            LIMIT ?""";
+    private static final String LIST_SQL = "SELECT * FROM users_app_table ORDER BY id";
+    private static final String SEED_SQL = """
+            INSERT INTO users_app_table (id, user_id, first_name, last_name, username, password, email, join_date, role,
+                                         authorities, is_active, is_not_locked)
+            SELECT nextval('users_app_table_seq'), 's' || n,
+                   (ARRAY['Anna','Piotr','Maria','Krzysztof','Ewa','Tomasz','Julia','Marek'])[1 + n % 8],
+                   (ARRAY['Nowak','Kowalski','Wisniewska','Wojcik','Kaminski','Lewandowska','Zielinski','Smith'])[1 + n % 7],
+                   ? || n, 'x', ? || n || '@example.com', now(),
+                   (ARRAY['ROLE_USER','ROLE_HR','ROLE_MANAGER','ROLE_ADMIN'])[1 + n % 4],
+                   ARRAY['user:read'], n % 10 <> 0, n % 50 <> 0
+            FROM generate_series(?, ?) AS n""";
+
+    @Param({"kowal", "seed12345"})
+    public String term;
+
+    private Connection connection;
+    private PreparedStatement search;
+    private PreparedStatement list;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                env("BENCH_DB_URL", "jdbc:postgresql://localhost:5432/users"),
+                env("BENCH_DB_USER", "users_app"),
+                env("BENCH_DB_PASSWORD", "password1"));
+        seed();
+        connection.setAutoCommit(false);
+        search = connection.prepareStatement(SEARCH_SQL);
+        list = connection.prepareStatement(LIST_SQL);
+        list.setFetchSize(1000);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void searchContains(Blackhole blackhole) throws SQLException {
+        search('%' + term + '%', blackhole);
+    }
+
+    @Benchmark
+    public void searchPrefix(Blackhole blackhole) throws SQLException {
+        search(term + '%', blackhole);
+    }
+
+    /**
+     * What the admin UI did before /search: download the whole list and filter it on the client.
+     */
+    @Benchmark
+    public int listAndFilter() throws SQLException {
+        int matches = 0;
+        try (ResultSet resultSet = list.executeQuery()) {
+            while (resultSet.next() && matches < PAGE_SIZE) {
+                if (contains(resultSet, "username") || contains(resultSet, "email")
+                        || contains(resultSet, "first_name") || contains(resultSet, "last_name"))
+                    matches++;
+            }
+        }
+        connection.commit();
+        return matches;
+    }
+
+    private void search(String pattern, Blackhole blackhole) throws SQLException {
+        search.setLong(1, 0L);
+        for (int i = 2; i <= 5; i++)
+            search.setString(i, pattern);
+        search.setString(6, "ROLE_USER");
+        search.setInt(7, PAGE_SIZE + 1);
+        try (ResultSet resultSet = search.executeQuery()) {
+            while (resultSet.next())
+                blackhole.consume(resultSet.getString("username"));
+        }
+        connection.commit();
+    }
+
+    private boolean contains(ResultSet resultSet, String column) throws SQLException {
+        String value = resultSet.getString(column);
+        return value != null && value.toLowerCase(Locale.ROOT).contains(term);
+    }
+
+    private void seed() throws SQLException {
+        long seeded;
+        try (PreparedStatement count = connection.prepareStatement("SELECT count(*) FROM users_app_table WHERE lower(username) LIKE ?")) {
+            count.setString(1, SEED_PREFIX + '%');
+            try (ResultSet resultSet = count.executeQuery()) {
+                resultSet.next();
+                seeded = resultSet.getLong(1);
+            }
+        }
+        if (seeded >= SEEDED_USERS)
+            return;
+        try (PreparedStatement insert = connection.prepareStatement(SEED_SQL)) {
+            insert.setString(1, SEED_PREFIX);
+            insert.setString(2, SEED_PREFIX);
+            insert.setLong(3, seeded + 1);
+            insert.setLong(4, SEEDED_USERS);
+            insert.executeUpdate();
+        }
+        try (Statement analyze = connection.createStatement()) {
+            analyze.execute("ANALYZE users_app_table");
+        }
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null ? defaultValue : value;
+    }
+}
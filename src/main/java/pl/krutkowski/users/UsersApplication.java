@@ -2,12 +2,16 @@ package pl.krutkowski.users;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.io.File;
 
 import static pl.krutkowski.users.constant.FileConstant.USER_FOLDER;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableAsync
 public class UsersApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,71 @@
+package pl.krutkowski.users.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * One pool for the primary and, when replica-datasource.url is set, a second pool for a read replica. Read-only
+ * transactions are routed to the replica; without a replica everything goes to the primary.
+ */
+@Slf4j
+@Configuration
+public class DataSourceConfiguration {
+
+    private static final String PRIMARY_POOL = "users-primary";
+    private static final String REPLICA_POOL = "users-replica";
+    private static final String APPLICATION_NAME = "ApplicationName";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(PRIMARY_POOL);
+        // Shows up in pg_stat_activity, so each connection can be traced back to its pool
+        dataSource.addDataSourceProperty(APPLICATION_NAME, PRIMARY_POOL);
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnExpression("!'${replica-datasource.url:}'.isBlank()")
+    @ConfigurationProperties("replica-datasource.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${replica-datasource.url}") String url,
+                                              @Value("${replica-datasource.username:${spring.datasource.username}}") String username,
+                                              @Value("${replica-datasource.password:${spring.datasource.password}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName(REPLICA_POOL);
+        dataSource.addDataSourceProperty(APPLICATION_NAME, REPLICA_POOL);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource) {
+        HikariDataSource replica = replicaDataSource.getIfAvailable();
+        if (replica == null) {
+            log.info("No replica configured, read-only transactions use the primary");
+            return primaryDataSource;
+        }
+        return new LazyConnectionDataSourceProxy(new ReadOnlyRoutingDataSource(primaryDataSource, replica));
+    }
+}
@@ -0,0 +1,65 @@
+package pl.krutkowski.users.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.krutkowski.users.utility.SmtpTransportPool;
+
+import javax.mail.Session;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * One SMTP session for the whole application, built once from its own properties rather than the system ones,
+ * and the pool of connections the outbox dispatcher sends through.
+ */
+@Configuration
+public class MailConfiguration {
+
+    @Bean
+    public Session mailSession(@Value("${email.smtp.protocol}") String protocol,
+                               @Value("${email.smtp.host}") String host,
+                               @Value("${email.smtp.port}") int port,
+                               @Value("${email.smtp.username}") String username,
+                               @Value("${email.smtp.starttls}") boolean starttls,
+                               @Value("${email.smtp.timeout}") Duration timeout) {
+        Properties props = new Properties();
+        String prefix = "mail." + protocol + ".";
+        props.put(prefix + "host", host);
+        props.put(prefix + "port", String.valueOf(port));
+        props.put(prefix + "auth", String.valueOf(!username.isEmpty()));
+        props.put(prefix + "starttls.enable", String.valueOf(starttls));
+        props.put(prefix + "starttls.required", String.valueOf(starttls));
+        // Without timeouts a provider that stops answering would hold a pooled connection forever
+        props.put(prefix + "connectiontimeout", String.valueOf(timeout.toMillis()));
+        props.put(prefix + "timeout", String.valueOf(timeout.toMillis()));
+        props.put(prefix + "writetimeout", String.valueOf(timeout.toMillis()));
+        return Session.getInstance(props, null);
+    }
+
+    @Bean(destroyMethod = "close")
+    public SmtpTransportPool smtpTransportPool(Session mailSession,
+                                               @Value("${email.smtp.protocol}") String protocol,
+                                               @Value("${email.smtp.host}") String host,
+                                               @Value("${email.smtp.port}") int port,
+                                               @Value("${email.smtp.username}") String username,
+                                               @Value("${email.smtp.password}") String password,
+                                               @Value("${email.smtp.pool.size}") int size,
+                                               @Value("${email.smtp.pool.max-messages-per-connection}") int maxMessagesPerConnection,
+                                               @Value("${email.smtp.pool.validate-after-idle}") Duration validateAfterIdle) {
+        return new SmtpTransportPool(mailSession, protocol, host, port, username, password,
+                size, maxMessagesPerConnection, validateAfterIdle);
+    }
+
+    @Bean
+    public HealthIndicator smtpHealthIndicator(SmtpTransportPool smtpTransportPool) {
+        return () -> {
+            Health.Builder health = smtpTransportPool.isHealthy() ? Health.up() : Health.down(smtpTransportPool.getLastConnectFailure());
+            return health.withDetail("open", smtpTransportPool.getOpenConnections())
+                    .withDetail("idle", smtpTransportPool.getIdleConnections())
+                    .build();
+        };
+    }
+}
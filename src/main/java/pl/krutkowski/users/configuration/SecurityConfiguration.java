@@ -1,8 +1,10 @@
 package pl.krutkowski.users.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.apache.catalina.filters.CorsFilter;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.*;
@@ -12,8 +14,12 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -23,9 +29,14 @@ import pl.krutkowski.users.constant.SecurityConstant;
 import pl.krutkowski.users.filter.JWTAuthorizationFilter;
 import pl.krutkowski.users.filter.JwtAccessDeniedHandler;
 import pl.krutkowski.users.filter.JwtAccessForbiddenEntryPoint;
+import pl.krutkowski.users.utility.BoundedPasswordEncoder;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
+
+import static pl.krutkowski.users.constant.SecurityConstant.BCRYPT_ENCODING_ID;
+import static pl.krutkowski.users.constant.SecurityConstant.PBKDF2_ENCODING_ID;
 
 @Configuration
 @EnableWebSecurity
@@ -73,9 +84,12 @@ public class SecurityConfiguration {
     }
 
     @Bean
-    public AuthenticationManager authenticationManager(@Qualifier("UserDetailService") UserDetailsService userDetailsService) {
+    public AuthenticationManager authenticationManager(@Qualifier("UserDetailService") UserDetailsService userDetailsService,
+                                                       UserDetailsPasswordService userDetailsPasswordService,
+                                                       PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService);
-        provider.setPasswordEncoder(getBCryptPasswordEncoder());
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserDetailsPasswordService(userDetailsPasswordService);
         ProviderManager providerManager = new ProviderManager(provider);
         providerManager.setAuthenticationEventPublisher(getDefaultAuthenticationEventPublisher());
         return providerManager;
@@ -87,7 +101,19 @@ public class SecurityConfiguration {
     }
 
     @Bean
-    public BCryptPasswordEncoder getBCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(@Value("${password-hashing.algorithm}") String algorithm,
+                                           @Value("${password-hashing.bcrypt-strength}") int bcryptStrength,
+                                           @Value("${password-hashing.threads}") int threads,
+                                           @Value("${password-hashing.queue-capacity}") int queueCapacity,
+                                           @Value("${password-hashing.retry-after-seconds}") long retryAfterSeconds,
+                                           MeterRegistry meterRegistry) {
+        BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                BCRYPT_ENCODING_ID, bCryptPasswordEncoder,
+                PBKDF2_ENCODING_ID, Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        int hashingThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder, hashingThreads, queueCapacity, retryAfterSeconds, meterRegistry);
     }
 }
@@ -9,9 +9,14 @@ public class SecurityConstant {
     public static final String K_RUTKOWSKI = "KRutkowski";
     public static final String CAR_APP = "Car application";
     public static final String AUTHORITIES = "authorities";
+    public static final String PERMISSIONS = "permissions";
     public static final String FORBIDDEN_MESSAGE = "You need to log in to access this page";
     public static final String ACCESS_DENIED_MESSAGE = "You do not have permission to access this page";
     public static final String OPTIONS_HTTP_METHOD = "OPTIONS";
-    public static final String[] PUBLIC_URLS = {"/api/v1/user/login", "/api/v1/user/register", "/api/v1/user/image/**"};
+    public static final String BCRYPT_ENCODING_ID = "bcrypt";
+    public static final String PBKDF2_ENCODING_ID = "pbkdf2";
+    public static final String PASSWORD_HASHING_BUSY = "Too many login requests at the moment. Please try again shortly";
+    public static final long VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+    public static final String[] PUBLIC_URLS = {"/api/v1/user/login", "/api/v1/user/register", "/api/v1/user/available", "/api/v1/user/image/**"};
 //    public static final String[] PUBLIC_URLS = {"**"};
 }
@@ -5,4 +5,30 @@ public class UserConstant {
     public static final String EMAIL_ALREADY_TAKEN = "EMAIL %s ALREADY TAKEN";
     public static final String USERNAME_ALREADY_TAKEN = "USERNAME: %s ALREADY TAKEN";
     public static final String USER_NOT_FOUND_BY_USERNAME = "USER NOT FOUND BY USERNAME %s ";
+    public static final String INVALID_CURSOR = "INVALID PAGE CURSOR %s";
+    public static final String USERNAME_UNIQUE_INDEX = "ux_users_app_table_username";
+    public static final String EMAIL_UNIQUE_INDEX = "ux_users_app_table_email";
+    public static final String INVALID_IMPORT_ROW = "INVALID IMPORT ROW %d";
+    public static final String IMPORT_MISSING_COLUMNS = "IMPORT FILE MUST HAVE USERNAME AND EMAIL COLUMNS";
+    public static final String IMPORT_UNTERMINATED_QUOTE = "IMPORT FILE HAS AN UNTERMINATED QUOTED VALUE";
+    public static final String IMPORT_TOO_LARGE = "IMPORT FILE HAS MORE THAN %d ROWS";
+    public static final String IMPORT_MISSING_FIELD = "%s IS REQUIRED";
+    public static final String INVALID_ROLE = "INVALID ROLE %s";
+    public static final String IMPORT_FAILED = "USER %s COULD NOT BE IMPORTED";
+    public static final int MAX_IMPORT_ROWS = 100_000;
+    public static final int IMPORT_CHUNK_SIZE = 500;
+    public static final String BULK_TARGET_REQUIRED = "USERNAMES OR A FILTER ARE REQUIRED";
+    public static final String UNKNOWN_BULK_ACTION = "UNKNOWN BULK ACTION %s";
+    public static final String SEARCH_TERM_TOO_SHORT = "SEARCH TERM MUST HAVE AT LEAST %d CHARACTERS";
+    public static final String SEARCH_TERM_TOO_LONG = "SEARCH TERM MUST HAVE AT MOST %d CHARACTERS";
+    public static final int MAX_SEARCH_TERM_LENGTH = 100;
+    public static final String UNKNOWN_SEARCH_MATCH = "UNKNOWN SEARCH MATCH %s";
+    public static final String UNKNOWN_FIELD = "UNKNOWN FIELD %s";
+    public static final String UNSUPPORTED_FORMAT = "UNSUPPORTED FORMAT %s";
+    public static final String UNKNOWN_SUGGEST_FIELD = "UNKNOWN SUGGEST FIELD %s";
+    public static final int DEFAULT_SUGGEST_LIMIT = 10;
+    public static final int MAX_SUGGEST_LIMIT = 50;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_LIST_SIZE = 1000;
 }
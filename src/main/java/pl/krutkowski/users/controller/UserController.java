@@ -2,37 +2,74 @@ package pl.krutkowski.users.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pl.krutkowski.users.domain.Availability;
+import pl.krutkowski.users.domain.Avatar;
+import pl.krutkowski.users.domain.BulkUserRequest;
 import pl.krutkowski.users.domain.HttpResponse;
+import pl.krutkowski.users.domain.LoginHistory;
 import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserImportReport;
+import pl.krutkowski.users.domain.UserPage;
 import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.domain.UserSummaryPage;
+import pl.krutkowski.users.enumeration.BulkAction;
+import pl.krutkowski.users.enumeration.ExportFormat;
+import pl.krutkowski.users.enumeration.SearchMatch;
+import pl.krutkowski.users.enumeration.SuggestField;
+import pl.krutkowski.users.enumeration.UserField;
 import pl.krutkowski.users.exception.ExceptionHandling;
 import pl.krutkowski.users.exception.domain.*;
+import pl.krutkowski.users.service.AvatarService;
+import pl.krutkowski.users.service.LoginActivityService;
+import pl.krutkowski.users.service.ProfileImageProcessor;
+import pl.krutkowski.users.service.UserAvailabilityService;
+import pl.krutkowski.users.service.UserBulkService;
+import pl.krutkowski.users.service.UserExportService;
+import pl.krutkowski.users.service.UserImportService;
+import pl.krutkowski.users.service.UserSearchService;
 import pl.krutkowski.users.service.UserService;
+import pl.krutkowski.users.service.UserSuggestService;
+import pl.krutkowski.users.utility.ImageFiles;
 import pl.krutkowski.users.utility.JTWTokenProvider;
 
 import javax.mail.MessagingException;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import static org.springframework.http.HttpStatus.NO_CONTENT;
 import static org.springframework.http.HttpStatus.OK;
-import static org.springframework.http.MediaType.IMAGE_JPEG_VALUE;
 import static pl.krutkowski.users.constant.FileConstant.*;
 import static pl.krutkowski.users.constant.SecurityConstant.JWT_TOKEN_HEADER;
+import static pl.krutkowski.users.constant.UserConstant.DEFAULT_PAGE_SIZE;
+import static pl.krutkowski.users.constant.UserConstant.DEFAULT_SUGGEST_LIMIT;
 import static pl.krutkowski.users.constant.UserConstant.USER_NOT_FOUND_BY_USERNAME;
 
 @Slf4j
@@ -44,41 +81,67 @@ public class UserController extends ExceptionHandling {
     public static final String EMAIL_SENT_TO_MESSAGE = "Email sent to: ";
     public static final String EMAIL_SENT_WITH_NEW_PASSWORD = "Email with new password sent to: ";
     public static final String USER_DELETED_SUCCESSFULLY = "User deleted successfully";
+    public static final String USERS_UPDATED = "%d users updated";
+    public static final String USERS_DELETED = "%d users deleted";
+    public static final String EXPORT_FILE_NAME = "users";
+    public static final String GZIP_ENCODING = "gzip";
+    public static final int EXPORT_BUFFER_SIZE = 8192;
+    private static final CacheControl AVATAR_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(7)).cachePublic();
     private final UserService userService;
+    private final LoginActivityService loginActivityService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final UserBulkService userBulkService;
+    private final UserSearchService userSearchService;
+    private final UserSuggestService userSuggestService;
+    private final UserAvailabilityService userAvailabilityService;
+    private final AvatarService avatarService;
+    private final ProfileImageProcessor profileImageProcessor;
     private final JTWTokenProvider jtwTokenProvider;
     private final AuthenticationManager authenticationManager;
 
     @PostMapping("/login")
-    public ResponseEntity<User> loginUser(@RequestBody User user ) {
-        authenticateUser(user.getUsername(), user.getPassword());
-        User loginUser = userService.findUserUsername(user.getUsername());
-        UserPrinciple userPrinciple = new UserPrinciple(loginUser);
+    public ResponseEntity<Map<String, Object>> loginUser(@RequestBody User user,
+                                                         @RequestParam(value = "fields", required = false) String fields) throws InvalidFieldsException {
+        Set<UserField> userFields = UserField.parse(fields, UserField.DETAIL);
+        UserPrinciple userPrinciple = authenticateUser(user.getUsername(), user.getPassword());
         HttpHeaders headers = getJtwHeaders(userPrinciple);
-        return new ResponseEntity<>(loginUser, headers,OK);
+        return new ResponseEntity<>(UserField.project(userPrinciple.getUser(), userFields), headers,OK);
     }
 
     @PostMapping("/register")
-    public ResponseEntity<User> registerUser(@RequestBody User user ) throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException {
+    public ResponseEntity<Map<String, Object>> registerUser(@RequestBody User user,
+                                                            @RequestParam(value = "fields", required = false) String fields)
+            throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException, InvalidFieldsException {
+        Set<UserField> userFields = UserField.parse(fields, UserField.DETAIL);
         User registerUser = userService.registerUser(user.getFirstName(), user.getLastName(), user.getUsername(), user.getEmail());
-        return new ResponseEntity<>(registerUser,OK);
+        return new ResponseEntity<>(UserField.project(registerUser, userFields),OK);
+    }
+
+    @GetMapping("/available")
+    public ResponseEntity<Availability> checkAvailability(@RequestParam(value = "username", required = false) String username,
+                                                          @RequestParam(value = "email", required = false) String email) {
+        return new ResponseEntity<>(userAvailabilityService.check(username, email), OK);
     }
 
     @PostMapping("/add")
-    public ResponseEntity<User> addUser(@RequestParam("firstName") String firstName,
+    public ResponseEntity<Map<String, Object>> addUser(@RequestParam("firstName") String firstName,
                                         @RequestParam("lastName") String lastName,
                                         @RequestParam("username") String username,
                                         @RequestParam("email") String email,
                                         @RequestParam("role") String role,
                                         @RequestParam("isActive") String isActive,
                                         @RequestParam("isNonLocked") String isNonLocked,
-                                        @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
-            throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, MessagingException, NotAnImageFileException {
+                                        @RequestParam(value = "profileImage", required = false) MultipartFile profileImage,
+                                        @RequestParam(value = "fields", required = false) String fields)
+            throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, MessagingException, NotAnImageFileException, InvalidFieldsException {
+        Set<UserField> userFields = UserField.parse(fields, UserField.DETAIL);
         User newUser = userService.addUser(firstName, lastName, username, email, role, Boolean.parseBoolean(isNonLocked), Boolean.parseBoolean(isActive), profileImage);
-        return new ResponseEntity<>(newUser, OK);
+        return new ResponseEntity<>(UserField.project(newUser, userFields), OK);
     }
 
     @PostMapping("/update")
-    public ResponseEntity<User> addUser(@RequestParam("currentUsername") String currentUsername,
+    public ResponseEntity<Map<String, Object>> addUser(@RequestParam("currentUsername") String currentUsername,
                                         @RequestParam("firstName") String firstName,
                                         @RequestParam("lastName") String lastName,
                                         @RequestParam("username") String username,
@@ -86,29 +149,129 @@ public class UserController extends ExceptionHandling {
                                         @RequestParam("role") String role,
                                         @RequestParam("isActive") String isActive,
                                         @RequestParam("isNonLocked") String isNonLocked,
-                                        @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
-            throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException {
+                                        @RequestParam(value = "profileImage", required = false) MultipartFile profileImage,
+                                        @RequestParam(value = "fields", required = false) String fields)
+            throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException, InvalidFieldsException {
+        Set<UserField> userFields = UserField.parse(fields, UserField.DETAIL);
         User currentUser = userService.updateUser(currentUsername, firstName, lastName, username, email, role, Boolean.parseBoolean(isNonLocked), Boolean.parseBoolean(isActive), profileImage);
-        return new ResponseEntity<>(currentUser, OK);
+        return new ResponseEntity<>(UserField.project(currentUser, userFields), OK);
     }
 
     @GetMapping("find/{username}")
-    public ResponseEntity<User> getUserByUsername(@PathVariable("username") String username) throws UserNotFoundException {
+    public ResponseEntity<Map<String, Object>> getUserByUsername(@PathVariable("username") String username,
+                                                                 @RequestParam(value = "fields", required = false) String fields)
+            throws UserNotFoundException, InvalidFieldsException {
+        Set<UserField> userFields = UserField.parse(fields, UserField.DETAIL);
         User foundUser = userService.findUserUsername(username);
         if (foundUser == null) {
             String msg = String.format(USER_NOT_FOUND_BY_USERNAME, username);
             log.error(msg);
             throw new UserNotFoundException(msg);
         }
-        return new ResponseEntity<>(foundUser, OK);
+        return new ResponseEntity<>(UserField.project(foundUser, userFields), OK);
     }
 
     @GetMapping("list")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getUsers();
+    public ResponseEntity<List<Map<String, Object>>> getAllUsers(@RequestParam(value = "fields", required = false) String fields)
+            throws InvalidFieldsException {
+        List<Map<String, Object>> users = userService.getUsers(UserField.parse(fields, UserField.LIST));
         return new ResponseEntity<>(users, OK);
     }
 
+    @GetMapping("page")
+    public ResponseEntity<UserPage> getUsersPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                 @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                                 @RequestParam(value = "role", required = false) String role,
+                                                 @RequestParam(value = "active", required = false) Boolean active,
+                                                 @RequestParam(value = "notLocked", required = false) Boolean notLocked,
+                                                 @RequestParam(value = "fields", required = false) String fields)
+            throws InvalidCursorException, InvalidPageRequestException, InvalidFieldsException {
+        UserPage usersPage = userService.getUsersPage(cursor, size, role, active, notLocked, UserField.parse(fields, UserField.LIST));
+        return new ResponseEntity<>(usersPage, OK);
+    }
+
+    @GetMapping("search")
+    @PreAuthorize("@permissions.has(authentication, 'user:read')")
+    public ResponseEntity<UserSummaryPage> searchUsers(@RequestParam("q") String term,
+                                                       @RequestParam(value = "match", defaultValue = "contains") String match,
+                                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                                       @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                                       @RequestParam(value = "role", required = false) String role,
+                                                       @RequestParam(value = "active", required = false) Boolean active,
+                                                       @RequestParam(value = "notLocked", required = false) Boolean notLocked)
+            throws InvalidSearchException, InvalidCursorException {
+        UserSummaryPage usersPage = userSearchService.search(term, SearchMatch.parse(match), cursor, size, role, active, notLocked);
+        return new ResponseEntity<>(usersPage, OK);
+    }
+
+    @GetMapping("suggest")
+    @PreAuthorize("@permissions.has(authentication, 'user:read')")
+    public ResponseEntity<List<String>> suggestUsers(@RequestParam("prefix") String prefix,
+                                                     @RequestParam(value = "field", defaultValue = "username") String field,
+                                                     @RequestParam(value = "limit", defaultValue = "" + DEFAULT_SUGGEST_LIMIT) int limit)
+            throws InvalidSearchException {
+        List<String> suggestions = userSuggestService.suggest(SuggestField.parse(field), prefix, limit);
+        return new ResponseEntity<>(suggestions, OK);
+    }
+
+    @GetMapping("export")
+    @PreAuthorize("@permissions.has(authentication, 'user:read')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws UnsupportedFormatException {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE, true);
+                userExportService.exportUsers(exportFormat, gzipOutputStream);
+                gzipOutputStream.finish();
+            } else
+                userExportService.exportUsers(exportFormat, outputStream);
+        };
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(exportFormat.getMediaType()));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(EXPORT_FILE_NAME + DOT + exportFormat.getExtension()).build());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        if (gzip)
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+        return new ResponseEntity<>(body, headers, OK);
+    }
+
+    @PostMapping("/import")
+    @PreAuthorize("@permissions.has(authentication, 'user:create')")
+    public ResponseEntity<UserImportReport> importUsers(@RequestParam("file") MultipartFile file,
+                                                        @RequestParam(value = "format", defaultValue = "csv") String format)
+            throws IOException, InvalidImportFileException, UnsupportedFormatException {
+        ExportFormat importFormat = ExportFormat.parse(format);
+        try (InputStream inputStream = file.getInputStream()) {
+            return new ResponseEntity<>(userImportService.importUsers(inputStream, importFormat), OK);
+        }
+    }
+
+    @PostMapping("/bulk/delete")
+    @PreAuthorize("@permissions.has(authentication, 'user:delete')")
+    public ResponseEntity<HttpResponse> bulkDelete(@RequestBody BulkUserRequest request) throws InvalidBulkRequestException {
+        int deleted = userBulkService.delete(request);
+        return response(OK, String.format(USERS_DELETED, deleted));
+    }
+
+    @PostMapping("/bulk/{action}")
+    @PreAuthorize("@permissions.has(authentication, 'user:update')")
+    public ResponseEntity<HttpResponse> bulkUpdate(@PathVariable("action") String action,
+                                                   @RequestBody BulkUserRequest request) throws InvalidBulkRequestException {
+        int updated = userBulkService.update(BulkAction.parse(action), request);
+        return response(OK, String.format(USERS_UPDATED, updated));
+    }
+
+    @GetMapping("history/{username}")
+    public ResponseEntity<PagedModel<LoginHistory>> getLoginHistory(@PathVariable("username") String username,
+                                                                    @RequestParam(value = "page", defaultValue = "0") int page,
+                                                                    @RequestParam(value = "size", defaultValue = "20") int size) {
+        Page<LoginHistory> loginHistory = loginActivityService.getLoginHistory(username, page, size);
+        return new ResponseEntity<>(new PagedModel<>(loginHistory), OK);
+    }
+
     @GetMapping("resertpassword/{email}")
     public ResponseEntity<HttpResponse> resetPassword(@PathVariable("email") String email) throws EmailNotFoundException, MessagingException {
         userService.resetPassword(email);
@@ -116,40 +279,77 @@ public class UserController extends ExceptionHandling {
     }
 
     @DeleteMapping("delete/{username}")
-    @PreAuthorize("hasAuthority('user:delete')")
+    @PreAuthorize("@permissions.has(authentication, 'user:delete')")
     public ResponseEntity<HttpResponse> deleteUser(@PathVariable("username") String username) {
         userService.deleteUser(username);
         return response(NO_CONTENT, USER_DELETED_SUCCESSFULLY);
     }
 
     @PostMapping("/updateProfileImage")
-    public ResponseEntity<User> updateProfileImage(@RequestParam("username") String username,
-                                                   @RequestParam("image") MultipartFile image)
-            throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException {
+    public ResponseEntity<Map<String, Object>> updateProfileImage(@RequestParam("username") String username,
+                                                                  @RequestParam("image") MultipartFile image,
+                                                                  @RequestParam(value = "fields", required = false) String fields)
+            throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException, InvalidFieldsException {
+        Set<UserField> userFields = UserField.parse(fields, UserField.DETAIL);
         User user = userService.updateProfileImage(username, image);
-        return new ResponseEntity<>(user, OK);
+        return new ResponseEntity<>(UserField.project(user, userFields), OK);
     }
 
-    @GetMapping(value = "/image/{username}/{filename}", produces = IMAGE_JPEG_VALUE)
-    public byte[] getProfileImage(
+    @GetMapping("/image/{username}/{filename}")
+    public ResponseEntity<Resource> getProfileImage(
             @PathVariable("username") String username,
-            @PathVariable("filename") String filename) throws IOException {
-        return Files.readAllBytes(Paths.get(USER_FOLDER + username + FORWARD_SLASH + filename));
-    }
-
-    @GetMapping(value = "/image/profile/{username}", produces = IMAGE_JPEG_VALUE)
-    public byte[] getTempProfileImage(
-            @PathVariable("username") String username) throws IOException {
-        URL url = new URL(TEMP_PROFILE_IMAGE_BASE_URL + username);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        try (InputStream inputStream = url.openStream()) {
-            int bytesRead;
-            byte [] chunk = new byte[1024];
-            while ((bytesRead = inputStream.read(chunk)) > 0) {
-                byteArrayOutputStream.write(chunk, 0, bytesRead);
+            @PathVariable("filename") String filename,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = ImageFiles.VERSION_PARAMETER, required = false) String version,
+            ServletWebRequest webRequest) throws IOException, ImageNotFoundException {
+        Path original = ImageFiles.resolve(Paths.get(USER_FOLDER), username, filename);
+        if (!Files.isRegularFile(original))
+            throw new ImageNotFoundException(IMAGE_NOT_FOUND + filename);
+        Optional<Path> variant = profileImageProcessor.findVariant(original, size);
+        if (variant.isEmpty()) {
+            // The upload itself is never served, as it may carry EXIF location data; the default avatar stands in
+            // until the variants are ready, and must not be cached under their URL
+            Avatar avatar = avatarService.getAvatar(username);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .contentType(MediaType.parseMediaType(avatar.contentType()))
+                    .body(new ByteArrayResource(avatar.image()));
+        }
+        return ImageFiles.serve(variant.get(), ImageFiles.isVersion(original, version), webRequest);
+    }
+
+    @GetMapping("/image/profile/{username}")
+    public ResponseEntity<byte[]> getTempProfileImage(@PathVariable("username") String username) {
+        Avatar avatar = avatarService.getAvatar(username);
+        return ResponseEntity.ok()
+                .eTag(avatar.eTag())
+                .cacheControl(AVATAR_CACHE_CONTROL)
+                .contentType(MediaType.parseMediaType(avatar.contentType()))
+                .body(avatar.image());
+    }
+
+    /**
+     * Whether the client takes a gzip body; an explicit gzip entry wins over the * wildcard, and q=0 refuses.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            boolean accepted = true;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q="))
+                    accepted = !parameter.substring(2).matches("0(\\.0{0,3})?");
             }
+            if (name.equalsIgnoreCase(GZIP_ENCODING))
+                return accepted;
+            if (name.equals("*"))
+                wildcard = accepted;
         }
-        return byteArrayOutputStream.toByteArray();
+        return Boolean.TRUE.equals(wildcard);
     }
 
     private ResponseEntity<HttpResponse> response(HttpStatus httpStatus, String message) {
@@ -164,7 +364,8 @@ public class UserController extends ExceptionHandling {
         return headers;
     }
 
-    private void authenticateUser(String username, String password) {
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+    private UserPrinciple authenticateUser(String username, String password) {
+        Authentication authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+        return (UserPrinciple) authentication.getPrincipal();
     }
 }
@@ -0,0 +1,4 @@
+package pl.krutkowski.users.domain;
+
+public record Availability(Boolean username, Boolean email) {
+}
@@ -0,0 +1,4 @@
+package pl.krutkowski.users.domain;
+
+public record Avatar(byte[] image, String contentType, String eTag) {
+}
@@ -0,0 +1,4 @@
+package pl.krutkowski.users.domain;
+
+public record BulkUserFilter(String role, Boolean active, Boolean notLocked) {
+}
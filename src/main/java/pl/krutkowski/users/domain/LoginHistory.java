@@ -0,0 +1,30 @@
+package pl.krutkowski.users.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Date;
+
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "user_login_history", indexes = @Index(name = "ix_user_login_history_username_date", columnList = "username, loginDate"))
+public class LoginHistory implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private Long id;
+    @Column(nullable = false, updatable = false)
+    private String username;
+    @Column(nullable = false, updatable = false)
+    private Date loginDate;
+}
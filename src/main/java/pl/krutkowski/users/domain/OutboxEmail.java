@@ -0,0 +1,4 @@
+package pl.krutkowski.users.domain;
+
+public record OutboxEmail(long id, String recipient, String subject, String body, int attempts) {
+}
@@ -0,0 +1,45 @@
+package pl.krutkowski.users.domain;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import pl.krutkowski.users.enumeration.Permission;
+import pl.krutkowski.users.utility.AuthorityRegistry;
+
+import java.util.Collection;
+
+public class PermissionAuthenticationToken extends AbstractAuthenticationToken {
+
+    private final String principal;
+    private final int permissions;
+
+    public PermissionAuthenticationToken(String principal, int permissions) {
+        super(AuthorityUtils.NO_AUTHORITIES);
+        this.principal = principal;
+        this.permissions = permissions;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public Collection<GrantedAuthority> getAuthorities() {
+        return AuthorityRegistry.authoritiesOf(permissions);
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return principal;
+    }
+
+    public int getPermissions() {
+        return permissions;
+    }
+
+    public boolean hasPermission(Permission permission) {
+        return AuthorityRegistry.hasPermission(permissions, permission);
+    }
+}
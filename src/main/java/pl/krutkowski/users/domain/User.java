@@ -19,7 +19,8 @@ import java.util.Date;
 public class User implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_app_table_seq")
+    @SequenceGenerator(name = "users_app_table_seq", sequenceName = "users_app_table_seq", allocationSize = 50)
     @Column(nullable = false, updatable = false)
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Long id;
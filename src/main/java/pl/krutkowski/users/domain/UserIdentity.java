@@ -0,0 +1,4 @@
+package pl.krutkowski.users.domain;
+
+public record UserIdentity(String username, String email) {
+}
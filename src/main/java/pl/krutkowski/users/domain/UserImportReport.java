@@ -0,0 +1,6 @@
+package pl.krutkowski.users.domain;
+
+import java.util.List;
+
+public record UserImportReport(int created, int rejected, List<UserImportResult> rows) {
+}
@@ -0,0 +1,6 @@
+package pl.krutkowski.users.domain;
+
+import pl.krutkowski.users.enumeration.ImportStatus;
+
+public record UserImportResult(int row, String username, ImportStatus status, String message) {
+}
@@ -0,0 +1,5 @@
+package pl.krutkowski.users.domain;
+
+public record UserImportRow(String firstName, String lastName, String username, String email, String role,
+                            Boolean active, Boolean notLocked) {
+}
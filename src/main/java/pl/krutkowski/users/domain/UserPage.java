@@ -0,0 +1,7 @@
+package pl.krutkowski.users.domain;
+
+import java.util.List;
+import java.util.Map;
+
+public record UserPage(List<Map<String, Object>> users, String nextCursor) {
+}
@@ -1,23 +1,30 @@
 package pl.krutkowski.users.domain;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import pl.krutkowski.users.enumeration.Role;
+import pl.krutkowski.users.utility.AuthorityRegistry;
 
 import java.util.Collection;
-import java.util.stream.Collectors;
-
-import static java.util.Arrays.stream;
 
 @RequiredArgsConstructor
 public class UserPrinciple implements UserDetails {
 
+    @Getter
     private final User user;
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return stream(this.user.getAuthorities()).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+        return AuthorityRegistry.authoritiesOf(getPermissions());
+    }
+
+    public int getPermissions() {
+        // Users get their role's authorities, so the role's mask saves parsing them; a role that is not known
+        // any more falls back to the stored authorities
+        Role role = Role.fromName(this.user.getRole());
+        return role != null ? role.getPermissions() : AuthorityRegistry.maskOf(this.user.getAuthorities());
     }
 
     @Override
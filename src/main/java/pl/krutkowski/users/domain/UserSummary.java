@@ -0,0 +1,9 @@
+package pl.krutkowski.users.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Date;
+
+public record UserSummary(@JsonIgnore Long id, String userId, String firstName, String lastName, String username,
+                          String email, String role, boolean active, boolean notLocked, Date lastLoginDateDisplay) {
+}
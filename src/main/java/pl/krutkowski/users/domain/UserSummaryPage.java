@@ -0,0 +1,6 @@
+package pl.krutkowski.users.domain;
+
+import java.util.List;
+
+public record UserSummaryPage(List<UserSummary> users, String nextCursor) {
+}
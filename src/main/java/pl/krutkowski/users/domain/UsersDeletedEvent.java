@@ -0,0 +1,6 @@
+package pl.krutkowski.users.domain;
+
+import java.util.List;
+
+public record UsersDeletedEvent(List<String> usernames, List<String> emails) {
+}
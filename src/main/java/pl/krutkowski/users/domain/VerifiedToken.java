@@ -0,0 +1,18 @@
+package pl.krutkowski.users.domain;
+
+import org.springframework.security.core.GrantedAuthority;
+import pl.krutkowski.users.utility.AuthorityRegistry;
+
+import java.time.Instant;
+import java.util.List;
+
+public record VerifiedToken(String subject, int permissions, Instant expiresAt) {
+
+    public List<GrantedAuthority> authorities() {
+        return AuthorityRegistry.authoritiesOf(permissions);
+    }
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,23 @@
+package pl.krutkowski.users.enumeration;
+
+import pl.krutkowski.users.exception.domain.InvalidBulkRequestException;
+
+import java.util.Locale;
+
+import static pl.krutkowski.users.constant.UserConstant.UNKNOWN_BULK_ACTION;
+
+public enum BulkAction {
+    LOCK,
+    UNLOCK,
+    ACTIVATE,
+    DEACTIVATE,
+    ROLE;
+
+    public static BulkAction parse(String action) throws InvalidBulkRequestException {
+        for (BulkAction bulkAction : values()) {
+            if (bulkAction.name().equals(action.toUpperCase(Locale.ROOT)))
+                return bulkAction;
+        }
+        throw new InvalidBulkRequestException(String.format(UNKNOWN_BULK_ACTION, action));
+    }
+}
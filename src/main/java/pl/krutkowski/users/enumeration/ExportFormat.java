@@ -0,0 +1,36 @@
+package pl.krutkowski.users.enumeration;
+
+import pl.krutkowski.users.exception.domain.UnsupportedFormatException;
+
+import java.util.Locale;
+
+import static pl.krutkowski.users.constant.UserConstant.UNSUPPORTED_FORMAT;
+
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat parse(String format) throws UnsupportedFormatException {
+        for (ExportFormat exportFormat : values()) {
+            if (exportFormat.name().equals(format.toUpperCase(Locale.ROOT)))
+                return exportFormat;
+        }
+        throw new UnsupportedFormatException(String.format(UNSUPPORTED_FORMAT, format));
+    }
+}
@@ -0,0 +1,8 @@
+package pl.krutkowski.users.enumeration;
+
+public enum ImportStatus {
+    CREATED,
+    INVALID,
+    DUPLICATE,
+    FAILED
+}
@@ -0,0 +1,39 @@
+package pl.krutkowski.users.enumeration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public enum Permission {
+    // Masks travel in issued tokens, so each constant keeps its bit however the constants are reordered
+    USER_READ("user:read", 1),
+    USER_CREATE("user:create", 1 << 1),
+    USER_UPDATE("user:update", 1 << 2),
+    USER_DELETE("user:delete", 1 << 3);
+
+    private static final Map<String, Permission> BY_AUTHORITY = new HashMap<>();
+
+    static {
+        for (Permission permission : values())
+            BY_AUTHORITY.put(permission.authority, permission);
+    }
+
+    private final String authority;
+    private final int mask;
+
+    Permission(String authority, int mask) {
+        this.authority = authority;
+        this.mask = mask;
+    }
+
+    public String getAuthority() {
+        return authority;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public static Permission fromAuthority(String authority) {
+        return BY_AUTHORITY.get(authority);
+    }
+}
@@ -1,5 +1,10 @@
 package pl.krutkowski.users.enumeration;
 
+import pl.krutkowski.users.utility.AuthorityRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
 import static pl.krutkowski.users.constant.Authorities.*;
 
 public enum Role {
@@ -9,13 +14,30 @@ public enum Role {
     ROLE_ADMIN(ADMIN_AUTHORITIES),
     ROLE_SUPER_ADMIN(SUPER_ADMIN_AUTHORITIES);
 
+    private static final Map<String, Role> BY_NAME = new HashMap<>();
+
+    static {
+        for (Role role : values())
+            BY_NAME.put(role.name(), role);
+    }
+
     private final String[] authorities;
+    private final int permissions;
 
     Role(String... authorities) {
         this.authorities = authorities;
+        this.permissions = AuthorityRegistry.maskOf(authorities);
     }
 
     public String[] getAuthorities() {
         return authorities;
     }
+
+    public int getPermissions() {
+        return permissions;
+    }
+
+    public static Role fromName(String name) {
+        return BY_NAME.get(name);
+    }
 }
@@ -0,0 +1,30 @@
+package pl.krutkowski.users.enumeration;
+
+import pl.krutkowski.users.exception.domain.InvalidSearchException;
+
+import java.util.Locale;
+
+import static pl.krutkowski.users.constant.UserConstant.UNKNOWN_SEARCH_MATCH;
+
+public enum SearchMatch {
+    PREFIX(1),
+    CONTAINS(3);
+
+    private final int minLength;
+
+    SearchMatch(int minLength) {
+        this.minLength = minLength;
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public static SearchMatch parse(String match) throws InvalidSearchException {
+        for (SearchMatch searchMatch : values()) {
+            if (searchMatch.name().equals(match.toUpperCase(Locale.ROOT)))
+                return searchMatch;
+        }
+        throw new InvalidSearchException(String.format(UNKNOWN_SEARCH_MATCH, match));
+    }
+}
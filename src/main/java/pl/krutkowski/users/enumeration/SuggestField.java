@@ -0,0 +1,20 @@
+package pl.krutkowski.users.enumeration;
+
+import pl.krutkowski.users.exception.domain.InvalidSearchException;
+
+import java.util.Locale;
+
+import static pl.krutkowski.users.constant.UserConstant.UNKNOWN_SUGGEST_FIELD;
+
+public enum SuggestField {
+    USERNAME,
+    EMAIL;
+
+    public static SuggestField parse(String field) throws InvalidSearchException {
+        for (SuggestField suggestField : values()) {
+            if (suggestField.name().equals(field.toUpperCase(Locale.ROOT)))
+                return suggestField;
+        }
+        throw new InvalidSearchException(String.format(UNKNOWN_SUGGEST_FIELD, field));
+    }
+}
@@ -0,0 +1,80 @@
+package pl.krutkowski.users.enumeration;
+
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.exception.domain.InvalidFieldsException;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static pl.krutkowski.users.constant.UserConstant.UNKNOWN_FIELD;
+
+/**
+ * Fields a client may request with {@code ?fields=}: the JSON name, the entity attribute it is selected from and
+ * how to read it from a loaded user. The id and the password hash are deliberately not listed.
+ */
+public enum UserField {
+    USER_ID("userId", "userId", User::getUserId),
+    FIRST_NAME("firstName", "firstName", User::getFirstName),
+    LAST_NAME("lastName", "lastName", User::getLastName),
+    USERNAME("username", "username", User::getUsername),
+    EMAIL("email", "email", User::getEmail),
+    PROFILE_IMAGE_URL("profileImageUrl", "profileImageUrl", User::getProfileImageUrl),
+    LAST_LOGIN_DATE("lastLoginDate", "lastLoginDate", User::getLastLoginDate),
+    LAST_LOGIN_DATE_DISPLAY("lastLoginDateDisplay", "lastLoginDateDisplay", User::getLastLoginDateDisplay),
+    JOIN_DATE("joinDate", "joinDate", User::getJoinDate),
+    ROLE("role", "role", User::getRole),
+    AUTHORITIES("authorities", "authorities", User::getAuthorities),
+    ACTIVE("active", "isActive", User::isActive),
+    NOT_LOCKED("notLocked", "isNotLocked", User::isNotLocked);
+
+    public static final Set<UserField> DETAIL = Collections.unmodifiableSet(EnumSet.allOf(UserField.class));
+    public static final Set<UserField> LIST = Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(AUTHORITIES, LAST_LOGIN_DATE)));
+
+    private static final Map<String, UserField> BY_NAME = new HashMap<>();
+
+    static {
+        for (UserField field : values())
+            BY_NAME.put(field.name, field);
+    }
+
+    private final String name;
+    private final String attribute;
+    private final Function<User, Object> accessor;
+
+    UserField(String name, String attribute, Function<User, Object> accessor) {
+        this.name = name;
+        this.attribute = attribute;
+        this.accessor = accessor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Parses a comma-separated {@code ?fields=} value, keeping the enum order; blank means {@code defaults}.
+     */
+    public static Set<UserField> parse(String fields, Set<UserField> defaults) throws InvalidFieldsException {
+        if (fields == null || fields.isBlank())
+            return defaults;
+        Set<UserField> parsed = EnumSet.noneOf(UserField.class);
+        for (String name : fields.split(",")) {
+            UserField field = BY_NAME.get(name.trim());
+            if (field == null)
+                throw new InvalidFieldsException(String.format(UNKNOWN_FIELD, name.trim()));
+            parsed.add(field);
+        }
+        return parsed;
+    }
+
+    public static Map<String, Object> project(User user, Set<UserField> fields) {
+        Map<String, Object> projection = new LinkedHashMap<>();
+        for (UserField field : fields)
+            projection.put(field.name, field.accessor.apply(user));
+        return projection;
+    }
+}
@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class ImageNotFoundException extends Exception {
+
+    public ImageNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class InvalidBulkRequestException extends Exception {
+
+    public InvalidBulkRequestException(String message) {
+        super(message);
+    }
+}
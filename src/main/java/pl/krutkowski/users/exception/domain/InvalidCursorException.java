@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class InvalidCursorException extends Exception {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
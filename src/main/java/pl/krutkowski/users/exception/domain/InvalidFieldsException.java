@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class InvalidFieldsException extends Exception {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class InvalidImportFileException extends Exception {
+
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
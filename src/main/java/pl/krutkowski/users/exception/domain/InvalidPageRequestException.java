@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class InvalidPageRequestException extends Exception {
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class InvalidSearchException extends Exception {
+
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+}
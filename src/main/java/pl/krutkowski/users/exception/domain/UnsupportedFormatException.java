@@ -0,0 +1,8 @@
+package pl.krutkowski.users.exception.domain;
+
+public class UnsupportedFormatException extends Exception {
+
+    public UnsupportedFormatException(String message) {
+        super(message);
+    }
+}
@@ -5,26 +5,41 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
+import pl.krutkowski.users.domain.VerifiedToken;
 import pl.krutkowski.users.utility.JTWTokenProvider;
 
 import java.io.IOException;
-import java.util.List;
 
-import static pl.krutkowski.users.constant.SecurityConstant.OPTIONS_HTTP_METHOD;
-import static pl.krutkowski.users.constant.SecurityConstant.TOKEN_PREFIX;
+import static java.util.Arrays.stream;
+import static pl.krutkowski.users.constant.SecurityConstant.*;
 
 @RequiredArgsConstructor
 @Component
 public class JWTAuthorizationFilter extends OncePerRequestFilter {
 
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
     private final JTWTokenProvider jtwTokenProvider;
 
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return stream(PUBLIC_URLS).anyMatch(publicUrl -> PATH_MATCHER.match(publicUrl, path));
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         if(request.getMethod().equalsIgnoreCase(OPTIONS_HTTP_METHOD))
@@ -36,10 +51,9 @@ public class JWTAuthorizationFilter extends OncePerRequestFilter {
                 return;
             }
             String token = authHeader.substring(TOKEN_PREFIX.length());
-            String username = jtwTokenProvider.getSubject(token);
-            if(jtwTokenProvider.isTokenValid(username, token) && SecurityContextHolder.getContext().getAuthentication() == null) {
-                List<GrantedAuthority> authorities = jtwTokenProvider.getAuthorities(token);
-                Authentication authentication = jtwTokenProvider.getAuthentication(username, authorities, request);
+            VerifiedToken verifiedToken = jtwTokenProvider.verifyToken(token);
+            if(StringUtils.isNotEmpty(verifiedToken.subject()) && SecurityContextHolder.getContext().getAuthentication() == null) {
+                Authentication authentication = jtwTokenProvider.getAuthentication(verifiedToken, request);
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             } else
                 SecurityContextHolder.clearContext();
@@ -5,6 +5,7 @@ import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
 import org.springframework.stereotype.Component;
 import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.service.LoginActivityService;
 import pl.krutkowski.users.service.LoginAttemptService;
 
 @Component
@@ -12,12 +13,14 @@ import pl.krutkowski.users.service.LoginAttemptService;
 public class AuthenticationSuccessListener {
 
     private final LoginAttemptService loginAttemptService;
+    private final LoginActivityService loginActivityService;
 
     @EventListener
     public void onAuthenticationSuccess(AuthenticationSuccessEvent event) {
         Object principal = event.getAuthentication().getPrincipal();
         if(principal instanceof UserPrinciple user) {
             loginAttemptService.evictUserFromCache(user.getUsername());
+            loginActivityService.recordLogin(user.getUsername());
         }
     }
 }
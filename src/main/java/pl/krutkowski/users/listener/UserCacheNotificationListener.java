@@ -0,0 +1,94 @@
+package pl.krutkowski.users.listener;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+import pl.krutkowski.users.service.UserCacheService;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds one connection in LISTEN mode and applies user cache invalidations sent by other nodes. The connection is
+ * opened outside the primary pool, as it is never given back.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user-cache.notify.enabled", havingValue = "true")
+public class UserCacheNotificationListener {
+
+    private final DataSourceProperties dataSourceProperties;
+    private final UserCacheService userCacheService;
+    private final String channel;
+    private final int pollTimeout;
+    private final long reconnectDelay;
+    private final ExecutorService listenerExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("user-cache-listener-%d").setDaemon(true).build());
+    private volatile boolean running = true;
+
+    public UserCacheNotificationListener(DataSourceProperties dataSourceProperties,
+                                         UserCacheService userCacheService,
+                                         @Value("${user-cache.notify.channel}") String channel,
+                                         @Value("${user-cache.notify.poll-timeout}") int pollTimeout,
+                                         @Value("${user-cache.notify.reconnect-delay}") long reconnectDelay) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.userCacheService = userCacheService;
+        this.channel = channel;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerExecutor.execute(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listenerExecutor.shutdownNow();
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    // pg_notify takes the channel as given, so it is quoted here to keep its exact spelling
+                    statement.execute("LISTEN " + pgConnection.escapeIdentifier(channel));
+                }
+                // Anything sent while this node was not listening is lost, so start from an empty cache
+                userCacheService.invalidateAll();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeout);
+                    if (notifications == null)
+                        continue;
+                    for (PGNotification notification : notifications)
+                        userCacheService.onInvalidation(notification.getParameter());
+                }
+            } catch (SQLException e) {
+                if (!running)
+                    return;
+                log.error("User cache listener lost its connection, reconnecting in {} ms", reconnectDelay, e);
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
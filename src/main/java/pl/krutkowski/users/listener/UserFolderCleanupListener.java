@@ -0,0 +1,36 @@
+package pl.krutkowski.users.listener;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.krutkowski.users.domain.UsersDeletedEvent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static pl.krutkowski.users.constant.FileConstant.USER_FOLDER;
+
+@Slf4j
+@Component
+public class UserFolderCleanupListener {
+
+    @Async
+    @TransactionalEventListener
+    public void onUsersDeleted(UsersDeletedEvent event) {
+        Path root = Paths.get(USER_FOLDER).toAbsolutePath().normalize();
+        for (String username : event.usernames()) {
+            Path userFolder = root.resolve(username).normalize();
+            if (!userFolder.startsWith(root) || userFolder.equals(root))
+                continue;
+            try {
+                FileUtils.deleteDirectory(userFolder.toFile());
+            } catch (IOException e) {
+                log.error("Failed to delete folder of user {}: {}", username, e.getMessage());
+            }
+        }
+        log.debug("Removed folders of {} deleted users", event.usernames().size());
+    }
+}
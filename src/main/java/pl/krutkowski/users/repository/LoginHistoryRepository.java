@@ -0,0 +1,10 @@
+package pl.krutkowski.users.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import pl.krutkowski.users.domain.LoginHistory;
+
+public interface LoginHistoryRepository extends JpaRepository<LoginHistory, Long> {
+    Page<LoginHistory> findByUsernameOrderByLoginDateDesc(String username, Pageable pageable);
+}
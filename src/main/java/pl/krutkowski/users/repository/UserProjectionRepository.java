@@ -0,0 +1,19 @@
+package pl.krutkowski.users.repository;
+
+import pl.krutkowski.users.enumeration.UserField;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface UserProjectionRepository {
+
+    String ID = "id";
+
+    /**
+     * Keyset page of users with only the requested columns selected. Every row also carries the id under
+     * {@link #ID}, for the caller to build the next cursor from and then drop.
+     */
+    List<Map<String, Object>> findPageAfter(long afterId, String role, Boolean active, Boolean notLocked,
+                                            Set<UserField> fields, int limit);
+}
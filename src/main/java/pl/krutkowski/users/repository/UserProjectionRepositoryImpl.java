@@ -0,0 +1,54 @@
+package pl.krutkowski.users.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.*;
+import lombok.RequiredArgsConstructor;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.enumeration.UserField;
+
+import java.util.*;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+@RequiredArgsConstructor
+public class UserProjectionRepositoryImpl implements UserProjectionRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findPageAfter(long afterId, String role, Boolean active, Boolean notLocked,
+                                                   Set<UserField> fields, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<User> user = query.from(User.class);
+        List<Selection<?>> selections = new ArrayList<>(fields.size() + 1);
+        selections.add(user.get(ID).alias(ID));
+        for (UserField field : fields)
+            selections.add(user.get(field.getAttribute()).alias(field.getName()));
+        List<Predicate> predicates = new ArrayList<>(4);
+        predicates.add(builder.greaterThan(user.<Long>get(ID), afterId));
+        if (role != null)
+            predicates.add(builder.equal(user.get(UserField.ROLE.getAttribute()), role));
+        if (active != null)
+            predicates.add(builder.equal(user.get(UserField.ACTIVE.getAttribute()), active));
+        if (notLocked != null)
+            predicates.add(builder.equal(user.get(UserField.NOT_LOCKED.getAttribute()), notLocked));
+        query.multiselect(selections)
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(builder.asc(user.get(ID)));
+        List<Tuple> tuples = entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .setHint(HINT_READ_ONLY, true)
+                .getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements())
+                row.put(element.getAlias(), tuple.get(element));
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -1,10 +1,135 @@
 package pl.krutkowski.users.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserIdentity;
+import pl.krutkowski.users.domain.UserSummary;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    User findUserByUsername(String username);
-    User findUserByEmail(String email);
-    void deleteUserByUsername(String username);
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserProjectionRepository {
+
+    String USERNAMES_IN = " WHERE lower(u.username) IN :usernames";
+    String MATCHES_FILTER = """
+             WHERE (:role IS NULL OR u.role = :role)
+               AND (:active IS NULL OR u.isActive = :active)
+               AND (:notLocked IS NULL OR u.isNotLocked = :notLocked)""";
+
+    @Query("SELECT u FROM User u WHERE lower(u.username) = lower(:username)")
+    User findUserByUsername(@Param("username") String username);
+
+    @Query("SELECT u FROM User u WHERE lower(u.email) = lower(:email)")
+    User findUserByEmail(@Param("email") String email);
+
+    @Modifying
+    @Query("DELETE FROM User u WHERE lower(u.username) = lower(:username)")
+    void deleteUserByUsername(@Param("username") String username);
+
+    @Query("SELECT count(u) > 0 FROM User u WHERE lower(u.username) = lower(:username)")
+    boolean usernameExists(@Param("username") String username);
+
+    @Query("SELECT count(u) > 0 FROM User u WHERE lower(u.email) = lower(:email)")
+    boolean emailExists(@Param("email") String email);
+
+    @Query("SELECT lower(u.username) FROM User u WHERE lower(u.username) IN :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT lower(u.email) FROM User u WHERE lower(u.email) IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isNotLocked = false WHERE lower(u.username) = lower(:username)")
+    void lockUser(@Param("username") String username);
+
+    @Query("SELECT u.username FROM User u" + USERNAMES_IN)
+    List<String> findUsernamesIn(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.username FROM User u" + MATCHES_FILTER)
+    List<String> findUsernamesMatching(@Param("role") String role, @Param("active") Boolean active, @Param("notLocked") Boolean notLocked);
+
+    @Query("SELECT new pl.krutkowski.users.domain.UserIdentity(u.username, u.email) FROM User u" + USERNAMES_IN)
+    List<UserIdentity> findIdentitiesIn(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT new pl.krutkowski.users.domain.UserIdentity(u.username, u.email) FROM User u" + MATCHES_FILTER)
+    List<UserIdentity> findIdentitiesMatching(@Param("role") String role, @Param("active") Boolean active, @Param("notLocked") Boolean notLocked);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isNotLocked = :value" + USERNAMES_IN)
+    int updateNotLockedIn(@Param("usernames") Collection<String> usernames, @Param("value") boolean value);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isNotLocked = :value" + MATCHES_FILTER)
+    int updateNotLockedMatching(@Param("role") String role, @Param("active") Boolean active, @Param("notLocked") Boolean notLocked,
+                                @Param("value") boolean value);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isActive = :value" + USERNAMES_IN)
+    int updateActiveIn(@Param("usernames") Collection<String> usernames, @Param("value") boolean value);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isActive = :value" + MATCHES_FILTER)
+    int updateActiveMatching(@Param("role") String role, @Param("active") Boolean active, @Param("notLocked") Boolean notLocked,
+                             @Param("value") boolean value);
+
+    @Modifying
+    @Query("UPDATE User u SET u.role = :newRole, u.authorities = :authorities" + USERNAMES_IN)
+    int updateRoleIn(@Param("usernames") Collection<String> usernames, @Param("newRole") String newRole,
+                     @Param("authorities") String[] authorities);
+
+    @Modifying
+    @Query("UPDATE User u SET u.role = :newRole, u.authorities = :authorities" + MATCHES_FILTER)
+    int updateRoleMatching(@Param("role") String role, @Param("active") Boolean active, @Param("notLocked") Boolean notLocked,
+                           @Param("newRole") String newRole, @Param("authorities") String[] authorities);
+
+    @Modifying
+    @Query("DELETE FROM User u" + USERNAMES_IN)
+    int deleteIn(@Param("usernames") Collection<String> usernames);
+
+    @Modifying
+    @Query("DELETE FROM User u" + MATCHES_FILTER)
+    int deleteMatching(@Param("role") String role, @Param("active") Boolean active, @Param("notLocked") Boolean notLocked);
+
+    /**
+     * Every column has a text_pattern_ops index for prefix patterns (V3 and V7) and a trigram GIN index for
+     * contains patterns, which are at least three characters long (V3). Either way the OR becomes a bitmap OR over
+     * index scans instead of a sequential scan.
+     */
+    @Query("""
+            SELECT new pl.krutkowski.users.domain.UserSummary(u.id, u.userId, u.firstName, u.lastName, u.username, u.email,
+                   u.role, u.isActive, u.isNotLocked, u.lastLoginDateDisplay)
+            FROM User u
+            WHERE u.id > :afterId
+              AND (lower(u.username) LIKE :pattern ESCAPE '!'
+                   OR lower(u.email) LIKE :pattern ESCAPE '!'
+                   OR lower(u.firstName) LIKE :pattern ESCAPE '!'
+                   OR lower(u.lastName) LIKE :pattern ESCAPE '!')
+              AND (:role IS NULL OR u.role = :role)
+              AND (:active IS NULL OR u.isActive = :active)
+              AND (:notLocked IS NULL OR u.isNotLocked = :notLocked)
+            ORDER BY u.id""")
+    List<UserSummary> searchAfter(@Param("afterId") long afterId, @Param("pattern") String pattern, @Param("role") String role,
+                                  @Param("active") Boolean active, @Param("notLocked") Boolean notLocked, Limit limit);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<User> streamAllByOrderById();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u.username FROM User u")
+    Stream<String> streamAllUsernames();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u.email FROM User u")
+    Stream<String> streamAllEmails();
 }
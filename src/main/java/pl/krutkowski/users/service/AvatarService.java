@@ -0,0 +1,116 @@
+package pl.krutkowski.users.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.krutkowski.users.domain.Avatar;
+import pl.krutkowski.users.utility.Identicon;
+
+import java.awt.AWTError;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.springframework.http.MediaType.IMAGE_PNG_VALUE;
+
+/**
+ * Default avatars are identicons drawn locally from the username. Drawing is cheap and gives the same image every
+ * time, so only the most recently used are kept, in memory; nothing goes to disk, where an unauthenticated caller
+ * could fill it one made-up username at a time. Concurrent first requests for a username share one draw. The remote
+ * avatar service is only tried when drawing fails and avatar.remote.enabled is set, bounded by avatar.remote.timeout.
+ */
+@Slf4j
+@Service
+public class AvatarService {
+
+    // Part of the ETag, so a change to the drawing does not serve stale images
+    private static final String RENDER_VERSION = "v1";
+    private static final int MAX_REMOTE_BYTES = 1024 * 1024;
+
+    private final int size;
+    private final boolean remoteEnabled;
+    private final String remoteBaseUrl;
+    private final Duration remoteTimeout;
+    private final HttpClient httpClient;
+    private final LoadingCache<String, Avatar> avatars;
+
+    public AvatarService(MeterRegistry meterRegistry,
+                         @Value("${avatar.size}") int size,
+                         @Value("${avatar.cache-size}") long cacheSize,
+                         @Value("${avatar.remote.enabled}") boolean remoteEnabled,
+                         @Value("${avatar.remote.base-url}") String remoteBaseUrl,
+                         @Value("${avatar.remote.timeout}") Duration remoteTimeout) {
+        this.size = size;
+        this.remoteEnabled = remoteEnabled;
+        this.remoteBaseUrl = remoteBaseUrl;
+        this.remoteTimeout = remoteTimeout;
+        this.httpClient = remoteEnabled ? HttpClient.newBuilder().connectTimeout(remoteTimeout).build() : null;
+        this.avatars = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build(CacheLoader.from(this::load));
+        GuavaCacheMetrics.monitor(meterRegistry, avatars, "avatars");
+    }
+
+    public Avatar getAvatar(String username) {
+        try {
+            return avatars.getUnchecked(username);
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    private Avatar load(String username) {
+        String key = Hashing.sha256().hashString(username, StandardCharsets.UTF_8).toString();
+        String eTag = "\"" + RENDER_VERSION + "-" + key + "\"";
+        byte[] image;
+        try {
+            image = Identicon.png(username, size);
+        } catch (RuntimeException | LinkageError | AWTError e) {
+            if (!remoteEnabled)
+                throw e;
+            log.warn("Failed to draw avatar for {}, fetching it remotely", username, e);
+            return fetchRemote(username);
+        }
+        return new Avatar(image, IMAGE_PNG_VALUE, eTag);
+    }
+
+    private Avatar fetchRemote(String username) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(remoteBaseUrl + URLEncoder.encode(username, StandardCharsets.UTF_8)))
+                .timeout(remoteTimeout)
+                .GET()
+                .build();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200)
+                    throw new IOException("Remote avatar service answered " + response.statusCode());
+                byte[] image = body.readNBytes(MAX_REMOTE_BYTES);
+                String contentType = response.headers().firstValue("Content-Type").orElse(IMAGE_PNG_VALUE);
+                String eTag = "\"remote-" + Hashing.sha256().hashBytes(image) + "\"";
+                return new Avatar(image, contentType, eTag);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
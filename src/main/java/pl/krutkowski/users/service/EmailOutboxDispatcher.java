@@ -0,0 +1,169 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.krutkowski.users.domain.OutboxEmail;
+
+import javax.mail.MessagingException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends outbox emails in batches. A batch is claimed with FOR UPDATE SKIP LOCKED and leased by pushing its next
+ * attempt past the lease, so several nodes can dispatch side by side, no transaction stays open during SMTP and a
+ * node that dies mid-batch only delays its emails until the lease runs out. No send starts later than one SMTP
+ * timeout before the lease ends, as another node may claim the email from then on; the rest of a slow batch is
+ * released for the next claim instead. Failed emails are retried with
+ * exponential backoff and dead-lettered after the last attempt. A batch is sent by one thread per pooled SMTP
+ * connection, so the connections are all kept busy.
+ */
+@Slf4j
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final String CLAIM_SQL = """
+            UPDATE email_outbox SET attempts = attempts + 1, next_attempt_at = now() + make_interval(secs => ?)
+            WHERE id IN (SELECT id FROM email_outbox
+                         WHERE status = 'PENDING' AND next_attempt_at <= now()
+                         ORDER BY next_attempt_at
+                         LIMIT ?
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING id, recipient, subject, body, attempts""";
+    private static final String RELEASE_SQL =
+            "UPDATE email_outbox SET attempts = attempts - 1, next_attempt_at = now() WHERE id = ?";
+    private static final String DELETE_SENT_SQL = "DELETE FROM email_outbox WHERE id = ?";
+    private static final String RETRY_SQL =
+            "UPDATE email_outbox SET next_attempt_at = now() + make_interval(secs => ?), last_error = ? WHERE id = ?";
+    // The body holds a generated password, so it is not kept once the email is given up on
+    private static final String DEAD_LETTER_SQL =
+            "UPDATE email_outbox SET status = 'DEAD', body = NULL, last_error = ? WHERE id = ?";
+    private static final String STATUS_SQL = """
+            SELECT count(*) FILTER (WHERE status = 'PENDING'),
+                   count(*) FILTER (WHERE status = 'DEAD'),
+                   coalesce(extract(EPOCH FROM now() - min(created_at) FILTER (WHERE status = 'PENDING')), 0)
+            FROM email_outbox""";
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmailService emailService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final double leaseSeconds;
+    private final long sendWindowNanos;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter deadLettered;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final AtomicLong oldestPendingSeconds = new AtomicLong();
+    private final ExecutorService senders;
+
+    public EmailOutboxDispatcher(JdbcTemplate jdbcTemplate,
+                                 EmailService emailService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${email.outbox.batch-size}") int batchSize,
+                                 @Value("${email.outbox.max-attempts}") int maxAttempts,
+                                 @Value("${email.outbox.backoff}") Duration backoff,
+                                 @Value("${email.outbox.max-backoff}") Duration maxBackoff,
+                                 @Value("${email.outbox.lease}") Duration lease,
+                                 @Value("${email.smtp.timeout}") Duration sendTimeout,
+                                 @Value("${email.smtp.pool.size}") int senderThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emailService = emailService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        if (lease.compareTo(sendTimeout) <= 0)
+            throw new IllegalArgumentException("email.outbox.lease must be longer than email.smtp.timeout");
+        this.leaseSeconds = lease.toSeconds();
+        this.sendWindowNanos = lease.minus(sendTimeout).toNanos();
+        this.senders = Executors.newFixedThreadPool(senderThreads);
+        this.sent = Counter.builder("email.outbox.sent").register(meterRegistry);
+        this.retried = Counter.builder("email.outbox.retried").register(meterRegistry);
+        this.deadLettered = Counter.builder("email.outbox.dead-lettered").register(meterRegistry);
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("email.outbox.dead", dead, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("email.outbox.oldest-pending-seconds", oldestPendingSeconds, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval}")
+    public void dispatch() {
+        try {
+            List<OutboxEmail> batch;
+            do {
+                // Taken before the claim, so the deadline never falls after the lease the database grants
+                long deadline = System.nanoTime() + sendWindowNanos;
+                batch = claim();
+                CompletableFuture.allOf(batch.stream()
+                        .map(email -> CompletableFuture.runAsync(() -> send(email, deadline), senders))
+                        .toArray(CompletableFuture[]::new)).join();
+            } while (batch.size() == batchSize);
+            refreshStatus();
+        } catch (RuntimeException e) {
+            log.error("Failed to dispatch outbox emails", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+
+    private List<OutboxEmail> claim() {
+        return jdbcTemplate.query(CLAIM_SQL, (resultSet, row) -> new OutboxEmail(resultSet.getLong("id"),
+                resultSet.getString("recipient"), resultSet.getString("subject"), resultSet.getString("body"),
+                resultSet.getInt("attempts")), leaseSeconds, batchSize);
+    }
+
+    private void send(OutboxEmail email, long deadline) {
+        if (System.nanoTime() - deadline > 0) {
+            jdbcTemplate.update(RELEASE_SQL, email.id());
+            log.debug("Lease of email {} runs out before it could be sent, released it", email.id());
+            return;
+        }
+        try {
+            emailService.send(email.recipient(), email.subject(), email.body());
+            jdbcTemplate.update(DELETE_SENT_SQL, email.id());
+            sent.increment();
+        } catch (MessagingException | RuntimeException e) {
+            String error = StringUtils.abbreviate(String.valueOf(e.getMessage()), MAX_ERROR_LENGTH);
+            if (email.attempts() >= maxAttempts) {
+                jdbcTemplate.update(DEAD_LETTER_SQL, error, email.id());
+                deadLettered.increment();
+                log.error("Giving up on email {} to {} after {} attempts: {}", email.id(), email.recipient(), email.attempts(), error);
+            } else {
+                jdbcTemplate.update(RETRY_SQL, backoffSeconds(email.attempts()), error, email.id());
+                retried.increment();
+                log.warn("Email {} to {} failed on attempt {}, retrying: {}", email.id(), email.recipient(), email.attempts(), error);
+            }
+        }
+    }
+
+    private double backoffSeconds(int attempts) {
+        long multiplier = 1L << Math.min(attempts - 1, 30);
+        return Math.min(backoff.toSeconds() * multiplier, maxBackoff.toSeconds());
+    }
+
+    private void refreshStatus() {
+        jdbcTemplate.query(STATUS_SQL, resultSet -> {
+            pending.set(resultSet.getLong(1));
+            dead.set(resultSet.getLong(2));
+            oldestPendingSeconds.set(Math.round(resultSet.getDouble(3)));
+        });
+    }
+}
@@ -1,48 +1,82 @@
 package pl.krutkowski.users.service;
 
-import com.sun.mail.smtp.SMTPTransport;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.utility.SmtpTransportPool;
 
 import javax.mail.Message;
 import javax.mail.MessagingException;
-import javax.mail.Session;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Properties;
+import java.util.List;
 
 import static pl.krutkowski.users.constant.EmailConstant.*;
 
+/**
+ * Emails are written to the outbox in the caller's transaction and sent later by the {@link EmailOutboxDispatcher},
+ * so no request holds a connection or a transaction open for an SMTP exchange, and a rolled back write sends nothing.
+ * Sending goes through the pooled connections at no more than email.smtp.rate-per-second; the token bucket holds
+ * at most one second of unused sends, so an idle spell cannot turn into a burst the provider would throttle.
+ */
+@Slf4j
 @Service
 public class EmailService {
 
-    public void sendNewPasswordEmail(String firstName, String email, String password) throws MessagingException {
-        Message message = createEmail(firstName, password, email);
-        SMTPTransport smtpTransport = (SMTPTransport) getEmailSession().getTransport(SIMPLE_MAIL_TRANSFER_PROTOCOL);
-        smtpTransport.connect(GMAIL_SMTP_SERVER, USERNAME, PASSWORD);
-        smtpTransport.sendMessage(message, message.getAllRecipients());
-        smtpTransport.close();
+    private static final String INSERT_OUTBOX_SQL = "INSERT INTO email_outbox (recipient, subject, body) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SmtpTransportPool smtpTransportPool;
+    private final RateLimiter rateLimiter;
+
+    public EmailService(JdbcTemplate jdbcTemplate,
+                        SmtpTransportPool smtpTransportPool,
+                        @Value("${email.smtp.rate-per-second}") double ratePerSecond) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.smtpTransportPool = smtpTransportPool;
+        this.rateLimiter = RateLimiter.create(ratePerSecond);
+    }
+
+    public void sendNewPasswordEmail(String firstName, String email, String password) {
+        jdbcTemplate.update(INSERT_OUTBOX_SQL, email, EMAIL_SUBJECT, newPasswordText(firstName, password));
+    }
+
+    public void sendNewPasswordEmails(List<User> users, List<String> passwords) {
+        List<Object[]> batch = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            batch.add(new Object[]{user.getEmail(), EMAIL_SUBJECT, newPasswordText(user.getFirstName(), passwords.get(i))});
+        }
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, batch);
     }
 
-    private Message createEmail(String firstName, String password, String email) throws MessagingException {
-        Message message = new MimeMessage(getEmailSession());
+    /**
+     * Sends one message right away; only the outbox dispatcher should call this.
+     */
+    public void send(String recipient, String subject, String text) throws MessagingException {
+        Message message = createEmail(recipient, subject, text);
+        rateLimiter.acquire();
+        smtpTransportPool.send(message);
+    }
+
+    private String newPasswordText(String firstName, String password) {
+        return "Hello " + firstName + ", \n \n Your new account password is: " + password + "\n \n The Support Team";
+    }
+
+    private Message createEmail(String recipient, String subject, String text) throws MessagingException {
+        Message message = new MimeMessage(smtpTransportPool.getSession());
         message.setFrom(new InternetAddress(FROM_EMAIL));
-        message.setRecipient(Message.RecipientType.TO, new InternetAddress(email, false));
-        message.setRecipient(Message.RecipientType.CC, new InternetAddress(email, false));
-        message.setSubject(EMAIL_SUBJECT);
-        message.setText("Hello " + firstName + ", \n \n Your new account password is: " + password + "\n \n The Support Team");
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient, false));
+        message.setRecipient(Message.RecipientType.CC, new InternetAddress(recipient, false));
+        message.setSubject(subject);
+        message.setText(text);
         message.setSentDate(new Date());
         message.saveChanges();
         return message;
     }
-
-    private Session getEmailSession() {
-        Properties props = System.getProperties();
-        props.put(SMTP_HOST, GMAIL_SMTP_SERVER);
-        props.put(SMTP_AUTH, true);
-        props.put(SMTP_PORT, DEFAULT_PORT);
-        props.put(SMTP_STARTTLS_ENABLE, true);
-        props.put(SMTP_STARTTLS_REQUIRED, true);
-        return Session.getInstance(props, null);
-    }
 }
@@ -0,0 +1,177 @@
+package pl.krutkowski.users.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.krutkowski.users.domain.LoginHistory;
+import pl.krutkowski.users.repository.LoginHistoryRepository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static pl.krutkowski.users.constant.UserConstant.MAX_PAGE_SIZE;
+
+@Slf4j
+@Service
+public class LoginActivityService {
+
+    private static final String UPDATE_LAST_LOGIN_SQL =
+            "UPDATE users_app_table SET last_login_date_display = last_login_date, last_login_date = ? WHERE lower(username) = lower(?)";
+    private static final String INSERT_LOGIN_HISTORY_SQL =
+            "INSERT INTO user_login_history (username, login_date) VALUES (?, ?)";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoginHistoryRepository loginHistoryRepository;
+    private final UserCacheService userCacheService;
+    private final int batchSize;
+    private final int maxPending;
+    private final Map<String, Date> pendingLastLogins = new ConcurrentHashMap<>();
+    private final BlockingQueue<LoginHistory> pendingHistory;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flushExecutor;
+
+    public LoginActivityService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                LoginHistoryRepository loginHistoryRepository,
+                                UserCacheService userCacheService,
+                                @Value("${login-activity.flush-interval}") long flushInterval,
+                                @Value("${login-activity.batch-size}") int batchSize,
+                                @Value("${login-activity.max-pending}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loginHistoryRepository = loginHistoryRepository;
+        this.userCacheService = userCacheService;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.pendingHistory = new ArrayBlockingQueue<>(maxPending);
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("login-activity-%d").setDaemon(true).build());
+        this.flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordLogin(String username) {
+        Date loginDate = new Date();
+        if (pendingLastLogins.size() >= maxPending && !pendingLastLogins.containsKey(username))
+            log.warn("Login activity queue is full, dropping last login date of: {}", username);
+        else
+            pendingLastLogins.put(username, loginDate);
+        if (!pendingHistory.offer(new LoginHistory(null, username, loginDate)))
+            log.warn("Login history queue is full, dropping login of: {}", username);
+        if (pendingLastLogins.size() >= batchSize || pendingHistory.size() >= batchSize)
+            requestFlush();
+    }
+
+    public Page<LoginHistory> getLoginHistory(String username, int page, int size) {
+        return loginHistoryRepository.findByUsernameOrderByLoginDateDesc(username, PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flushExecutor.shutdown();
+        if (!flushExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            log.warn("Login activity flush did not finish within {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+        flush();
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true))
+            flushExecutor.execute(this::flushQuietly);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush login activity", e);
+        }
+    }
+
+    /**
+     * Entries stay pending until the batch holding them commits, so a failed flush is retried by the next one. Last
+     * logins and history are flushed independently; one failing does not hold the other back.
+     */
+    private synchronized void flush() {
+        flushRequested.set(false);
+        RuntimeException failure = null;
+        try {
+            flushLastLogins();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        try {
+            flushLoginHistory();
+        } catch (RuntimeException e) {
+            if (failure == null)
+                failure = e;
+            else
+                failure.addSuppressed(e);
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private void flushLastLogins() {
+        List<String> usernames = new ArrayList<>(pendingLastLogins.keySet());
+        // Updating rows in a stable order keeps concurrent flushes from different nodes from deadlocking
+        usernames.sort(null);
+        Map<String, Date> loginDates = new LinkedHashMap<>();
+        List<Object[]> batch = new ArrayList<>(Math.min(usernames.size(), batchSize));
+        for (String username : usernames) {
+            Date loginDate = pendingLastLogins.get(username);
+            if (loginDate == null)
+                continue;
+            loginDates.put(username, loginDate);
+            batch.add(new Object[]{new Timestamp(loginDate.getTime()), username});
+            if (batch.size() == batchSize) {
+                executeLastLoginBatch(batch, loginDates);
+                loginDates = new LinkedHashMap<>();
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty())
+            executeLastLoginBatch(batch, loginDates);
+    }
+
+    private void flushLoginHistory() {
+        List<LoginHistory> logins;
+        // Only this method takes from the queue, so its head is still the flushed batch once it has committed
+        while (!(logins = pendingHistory.stream().limit(batchSize).toList()).isEmpty()) {
+            List<Object[]> batch = new ArrayList<>(logins.size());
+            for (LoginHistory login : logins)
+                batch.add(new Object[]{login.getUsername(), new Timestamp(login.getLoginDate().getTime())});
+            executeBatch(INSERT_LOGIN_HISTORY_SQL, batch);
+            for (int i = 0; i < logins.size(); i++)
+                pendingHistory.poll();
+        }
+    }
+
+    private void executeLastLoginBatch(List<Object[]> batch, Map<String, Date> loginDates) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_SQL, batch);
+            userCacheService.updateLastLogins(loginDates);
+        });
+        // A login recorded during the batch replaced its entry and is left for the next flush
+        loginDates.forEach(pendingLastLogins::remove);
+        log.debug("Flushed {} last login dates", batch.size());
+    }
+
+    private void executeBatch(String sql, List<Object[]> batch) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, batch));
+        log.debug("Flushed {} login activity rows", batch.size());
+    }
+}
@@ -0,0 +1,10 @@
+package pl.krutkowski.users.service;
+
+public interface LoginAttemptStore {
+
+    int increment(String username);
+
+    int getAttempts(String username);
+
+    void reset(String username);
+}
@@ -0,0 +1,183 @@
+package pl.krutkowski.users.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.krutkowski.users.utility.ImageFiles;
+import pl.krutkowski.users.utility.ImageThumbnails;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static pl.krutkowski.users.constant.FileConstant.DOT;
+import static pl.krutkowski.users.constant.FileConstant.JPG_EXTENSION;
+
+/**
+ * Turns an uploaded profile image into square JPEGs in each of profile-image.sizes, on a bounded pool so uploads
+ * return before the work is done. Variants are named after the version of the original they came from, so a
+ * re-upload never serves a stale variant. The original is never served, since only the variants are stripped of
+ * metadata; until a variant exists callers show a placeholder. Asking for a missing variant queues the work, which
+ * also covers images uploaded before variants existed. A full queue only delays a variant until it is next asked for.
+ */
+@Slf4j
+@Service
+public class ProfileImageProcessor {
+
+    private static final String VARIANT_SEPARATOR = "-";
+    private static final int MAX_REMEMBERED_FAILURES = 10_000;
+
+    private final List<Integer> sizes;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<Path, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    // Originals that cannot be decoded are not retried on every request
+    private final Cache<Path, String> failedVersions = CacheBuilder.newBuilder().maximumSize(MAX_REMEMBERED_FAILURES).build();
+    private final Timer processingTimer;
+    private final Counter rejections;
+    private final Counter failures;
+
+    public ProfileImageProcessor(MeterRegistry meterRegistry,
+                                 @Value("${profile-image.sizes}") List<Integer> sizes,
+                                 @Value("${profile-image.threads}") int threads,
+                                 @Value("${profile-image.queue-capacity}") int queueCapacity,
+                                 @Value("${profile-image.max-pixels}") long maxPixels,
+                                 @Value("${profile-image.jpeg-quality}") float jpegQuality) {
+        this.sizes = sizes.stream().sorted().distinct().toList();
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("profile-image-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.processingTimer = Timer.builder("profile-image.processing").register(meterRegistry);
+        this.rejections = Counter.builder("profile-image.rejected").register(meterRegistry);
+        this.failures = Counter.builder("profile-image.failed").register(meterRegistry);
+        Gauge.builder("profile-image.queue.depth", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+    }
+
+    /**
+     * Queues the variants of {@code original}; concurrent calls for one original share the work.
+     */
+    public CompletableFuture<Void> process(Path original) {
+        CompletableFuture<Void> future = inFlight.computeIfAbsent(original, this::submit);
+        return future != null ? future : CompletableFuture.failedFuture(new RejectedExecutionException(original.toString()));
+    }
+
+    /**
+     * The variant of {@code original} closest to {@code requestedSize} from above, or the largest one when no size
+     * is given. When it does not exist yet, the work is queued and the result is empty.
+     */
+    public Optional<Path> findVariant(Path original, Integer requestedSize) throws IOException {
+        String version;
+        try {
+            version = ImageFiles.version(original);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        Path variant = variantPath(original, version, snap(requestedSize));
+        if (Files.exists(variant))
+            return Optional.of(variant);
+        if (!version.equals(failedVersions.getIfPresent(original)))
+            process(original);
+        return Optional.empty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private CompletableFuture<Void> submit(Path original) {
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    processingTimer.record(() -> createVariants(original));
+                } finally {
+                    inFlight.remove(original);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            log.debug("Image processing queue is full, {} waits for its next request", original);
+            return null;
+        }
+    }
+
+    private void createVariants(Path original) {
+        String version = null;
+        try {
+            version = ImageFiles.version(original);
+            BufferedImage source = ImageThumbnails.read(original, sizes.get(sizes.size() - 1), maxPixels);
+            for (int size : sizes)
+                write(ImageThumbnails.square(source, size), variantPath(original, version, size));
+            deleteStaleVariants(original, version);
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            if (version != null)
+                failedVersions.put(original, version);
+            log.warn("Failed to create variants of {}: {}", original, e.getMessage());
+        }
+    }
+
+    private void write(BufferedImage image, Path variant) throws IOException {
+        Path temporary = Files.createTempFile(variant.getParent(), null, DOT + JPG_EXTENSION);
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                ImageThumbnails.writeJpeg(image, jpegQuality, outputStream);
+            }
+            Files.move(temporary, variant, ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void deleteStaleVariants(Path original, String version) throws IOException {
+        String prefix = baseName(original) + VARIANT_SEPARATOR;
+        String current = prefix + version + VARIANT_SEPARATOR;
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(original.getParent(), prefix + "*" + DOT + JPG_EXTENSION)) {
+            for (Path sibling : siblings) {
+                if (!sibling.getFileName().toString().startsWith(current))
+                    Files.deleteIfExists(sibling);
+            }
+        }
+    }
+
+    private int snap(Integer requestedSize) {
+        if (requestedSize != null) {
+            for (int size : sizes) {
+                if (size >= requestedSize)
+                    return size;
+            }
+        }
+        return sizes.get(sizes.size() - 1);
+    }
+
+    private static Path variantPath(Path original, String version, int size) {
+        return original.resolveSibling(baseName(original) + VARIANT_SEPARATOR + version + VARIANT_SEPARATOR + size + DOT + JPG_EXTENSION);
+    }
+
+    private static String baseName(Path original) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+}
@@ -0,0 +1,141 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.krutkowski.users.domain.Availability;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.utility.RebuildableBloomFilter;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Answers "is this username / email free?" from Bloom filters over the existing values. A filter miss is final;
+ * only a probable hit is confirmed with an indexed lookup. The filters are rebuilt on an interval, which sizes them
+ * to the table, drops deleted values and picks up values written on other nodes, and writers on this node add
+ * new values before they commit.
+ */
+@Slf4j
+@Service
+public class UserAvailabilityService {
+
+    private static final String USERNAME = "username";
+    private static final String EMAIL = "email";
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long minimumCapacity;
+    private final RebuildableBloomFilter usernames;
+    private final RebuildableBloomFilter emails;
+    private final FieldMetrics usernameMetrics;
+    private final FieldMetrics emailMetrics;
+
+    public UserAvailabilityService(UserRepository userRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${user-availability.false-positive-rate}") double falsePositiveRate,
+                                   @Value("${user-availability.minimum-capacity}") long minimumCapacity) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.minimumCapacity = minimumCapacity;
+        this.usernames = new RebuildableBloomFilter(falsePositiveRate);
+        this.emails = new RebuildableBloomFilter(falsePositiveRate);
+        this.usernameMetrics = new FieldMetrics(meterRegistry, USERNAME, usernames);
+        this.emailMetrics = new FieldMetrics(meterRegistry, EMAIL, emails);
+    }
+
+    public Availability check(String username, String email) {
+        Boolean usernameAvailable = StringUtils.isBlank(username) ? null
+                : isAvailable(username.trim(), usernames, usernameMetrics, userRepository::usernameExists);
+        Boolean emailAvailable = StringUtils.isBlank(email) ? null
+                : isAvailable(email.trim(), emails, emailMetrics, userRepository::emailExists);
+        return new Availability(usernameAvailable, emailAvailable);
+    }
+
+    /**
+     * Called before the write commits: a rolled back write only leaves a false positive behind, while adding
+     * after commit would let a concurrent check report a taken value as free.
+     */
+    public void taken(String username, String email) {
+        usernames.put(username);
+        emails.put(email);
+    }
+
+    public void takenUsers(Collection<User> users) {
+        users.forEach(user -> taken(user.getUsername(), user.getEmail()));
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${user-availability.rebuild-interval}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Leave room for growth until the next rebuild so the false-positive rate stays near its target
+            long capacity = Math.max(minimumCapacity, userRepository.count() * 2);
+            try (Stream<String> keys = userRepository.streamAllUsernames()) {
+                usernames.rebuild(keys, capacity);
+            }
+            try (Stream<String> keys = userRepository.streamAllEmails()) {
+                emails.rebuild(keys, capacity);
+            }
+        });
+        log.info("Rebuilt availability filters of {} usernames and {} emails in {} ms", usernames.approximateElementCount(),
+                emails.approximateElementCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private boolean isAvailable(String value, RebuildableBloomFilter filter, FieldMetrics metrics, Predicate<String> exists) {
+        if (!filter.isReady()) {
+            metrics.notReady.increment();
+            return !exists.test(value);
+        }
+        if (!filter.mightContain(value)) {
+            metrics.negative.increment();
+            return true;
+        }
+        if (exists.test(value)) {
+            metrics.taken.increment();
+            return false;
+        }
+        metrics.falsePositive.increment();
+        return true;
+    }
+
+    private static final class FieldMetrics {
+
+        private final Counter negative;
+        private final Counter taken;
+        private final Counter falsePositive;
+        private final Counter notReady;
+
+        FieldMetrics(MeterRegistry meterRegistry, String field, RebuildableBloomFilter filter) {
+            negative = check(meterRegistry, field, "negative");
+            taken = check(meterRegistry, field, "taken");
+            falsePositive = check(meterRegistry, field, "false-positive");
+            notReady = check(meterRegistry, field, "not-ready");
+            Gauge.builder("users.availability.expected-fpp", filter, RebuildableBloomFilter::expectedFpp).tag("field", field).register(meterRegistry);
+            Gauge.builder("users.availability.keys", filter, RebuildableBloomFilter::approximateElementCount).tag("field", field).register(meterRegistry);
+            Gauge.builder("users.availability.bits", filter, RebuildableBloomFilter::bits).tag("field", field).register(meterRegistry);
+            // Observed rate of probable hits the database did not confirm, among values that are actually free
+            Gauge.builder("users.availability.false-positive-rate", this, FieldMetrics::falsePositiveRate).tag("field", field).register(meterRegistry);
+        }
+
+        private double falsePositiveRate() {
+            double free = negative.count() + falsePositive.count();
+            return free == 0 ? 0 : falsePositive.count() / free;
+        }
+
+        private static Counter check(MeterRegistry meterRegistry, String field, String result) {
+            return Counter.builder("users.availability.checks").tag("field", field).tag("result", result).register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package pl.krutkowski.users.service;
+
+import com.google.common.collect.Lists;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.krutkowski.users.domain.BulkUserFilter;
+import pl.krutkowski.users.domain.BulkUserRequest;
+import pl.krutkowski.users.domain.UserIdentity;
+import pl.krutkowski.users.domain.UsersDeletedEvent;
+import pl.krutkowski.users.enumeration.BulkAction;
+import pl.krutkowski.users.enumeration.Role;
+import pl.krutkowski.users.exception.domain.InvalidBulkRequestException;
+import pl.krutkowski.users.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import static pl.krutkowski.users.constant.UserConstant.*;
+
+/**
+ * Applies one change to many users with set-based statements: either to an explicit list of usernames,
+ * in chunks of {@code MAX_LIST_SIZE}, or to every user matching a filter in a single statement.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserBulkService {
+
+    private final UserRepository userRepository;
+    private final LoginAttemptService loginAttemptService;
+    private final UserCacheService userCacheService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional(rollbackFor = InvalidBulkRequestException.class)
+    public int update(BulkAction action, BulkUserRequest request) throws InvalidBulkRequestException {
+        Role role = action == BulkAction.ROLE ? roleOf(request.role()) : null;
+        List<String> usernames = findTargets(request);
+        int affected = 0;
+        if (hasUsernames(request)) {
+            for (List<String> chunk : Lists.partition(keysOf(request.usernames()), MAX_LIST_SIZE))
+                affected += updateIn(action, role, chunk);
+        } else {
+            affected = updateMatching(action, role, request.filter(), filterRole(request.filter()));
+        }
+        // Locking or unlocking starts the account over with a clean failed-attempt count
+        if (action == BulkAction.LOCK || action == BulkAction.UNLOCK)
+            usernames.forEach(loginAttemptService::evictUserFromCache);
+        userCacheService.evictUsernames(usernames);
+        log.info("Bulk {} applied to {} users", action, affected);
+        return affected;
+    }
+
+    @Transactional(rollbackFor = InvalidBulkRequestException.class)
+    public int delete(BulkUserRequest request) throws InvalidBulkRequestException {
+        List<UserIdentity> targets = findDeleteTargets(request);
+        List<String> usernames = targets.stream().map(UserIdentity::username).toList();
+        int affected = 0;
+        if (hasUsernames(request)) {
+            for (List<String> chunk : Lists.partition(keysOf(request.usernames()), MAX_LIST_SIZE))
+                affected += userRepository.deleteIn(chunk);
+        } else {
+            BulkUserFilter filter = request.filter();
+            affected = userRepository.deleteMatching(filterRole(filter), filter.active(), filter.notLocked());
+        }
+        usernames.forEach(loginAttemptService::evictUserFromCache);
+        userCacheService.evictUsernames(usernames);
+        List<String> emails = targets.stream().map(UserIdentity::email).filter(Objects::nonNull).toList();
+        eventPublisher.publishEvent(new UsersDeletedEvent(usernames, emails));
+        log.info("Bulk deleted {} users", affected);
+        return affected;
+    }
+
+    /**
+     * Deletes also need the emails, so that they leave the suggestion index together with the usernames.
+     */
+    private List<UserIdentity> findDeleteTargets(BulkUserRequest request) throws InvalidBulkRequestException {
+        if (hasUsernames(request)) {
+            List<UserIdentity> targets = new ArrayList<>(request.usernames().size());
+            for (List<String> chunk : Lists.partition(keysOf(request.usernames()), MAX_LIST_SIZE))
+                targets.addAll(userRepository.findIdentitiesIn(chunk));
+            return targets;
+        }
+        BulkUserFilter filter = requireFilter(request);
+        return userRepository.findIdentitiesMatching(filterRole(filter), filter.active(), filter.notLocked());
+    }
+
+    private List<String> findTargets(BulkUserRequest request) throws InvalidBulkRequestException {
+        if (hasUsernames(request)) {
+            List<String> usernames = new ArrayList<>(request.usernames().size());
+            for (List<String> chunk : Lists.partition(keysOf(request.usernames()), MAX_LIST_SIZE))
+                usernames.addAll(userRepository.findUsernamesIn(chunk));
+            return usernames;
+        }
+        BulkUserFilter filter = requireFilter(request);
+        return userRepository.findUsernamesMatching(filterRole(filter), filter.active(), filter.notLocked());
+    }
+
+    private BulkUserFilter requireFilter(BulkUserRequest request) throws InvalidBulkRequestException {
+        BulkUserFilter filter = request.filter();
+        if (filter == null || (filter.role() == null && filter.active() == null && filter.notLocked() == null))
+            throw new InvalidBulkRequestException(BULK_TARGET_REQUIRED);
+        return filter;
+    }
+
+    private int updateIn(BulkAction action, Role role, List<String> usernames) {
+        return switch (action) {
+            case LOCK -> userRepository.updateNotLockedIn(usernames, false);
+            case UNLOCK -> userRepository.updateNotLockedIn(usernames, true);
+            case ACTIVATE -> userRepository.updateActiveIn(usernames, true);
+            case DEACTIVATE -> userRepository.updateActiveIn(usernames, false);
+            case ROLE -> userRepository.updateRoleIn(usernames, role.name(), role.getAuthorities());
+        };
+    }
+
+    private int updateMatching(BulkAction action, Role role, BulkUserFilter filter, String filterRole) {
+        return switch (action) {
+            case LOCK -> userRepository.updateNotLockedMatching(filterRole, filter.active(), filter.notLocked(), false);
+            case UNLOCK -> userRepository.updateNotLockedMatching(filterRole, filter.active(), filter.notLocked(), true);
+            case ACTIVATE -> userRepository.updateActiveMatching(filterRole, filter.active(), filter.notLocked(), true);
+            case DEACTIVATE -> userRepository.updateActiveMatching(filterRole, filter.active(), filter.notLocked(), false);
+            case ROLE -> userRepository.updateRoleMatching(filterRole, filter.active(), filter.notLocked(), role.name(), role.getAuthorities());
+        };
+    }
+
+    private boolean hasUsernames(BulkUserRequest request) {
+        return request.usernames() != null && !request.usernames().isEmpty();
+    }
+
+    private List<String> keysOf(List<String> usernames) {
+        return usernames.stream().map(username -> username.toLowerCase(Locale.ROOT)).distinct().toList();
+    }
+
+    private String filterRole(BulkUserFilter filter) throws InvalidBulkRequestException {
+        return filter == null || filter.role() == null ? null : roleOf(filter.role()).name();
+    }
+
+    private Role roleOf(String role) throws InvalidBulkRequestException {
+        try {
+            return Role.valueOf(String.valueOf(role).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidBulkRequestException(String.format(INVALID_ROLE, role));
+        }
+    }
+}
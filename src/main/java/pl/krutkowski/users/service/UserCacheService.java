@@ -0,0 +1,228 @@
+package pl.krutkowski.users.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.repository.UserRepository;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Near-cache of users by username and of usernames by email. Concurrent misses for one key share a single load,
+ * callers always get their own copy, and writers evict after their transaction commits.
+ * With notifications enabled, evictions are also sent to the other nodes through Postgres NOTIFY.
+ */
+@Slf4j
+@Service
+public class UserCacheService {
+
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, payload) FROM unnest(?) AS payload";
+    private static final String USERNAME_PREFIX = "username:";
+    private static final String EMAIL_PREFIX = "email:";
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean notifyEnabled;
+    private final String channel;
+    private final TransactionTemplate primaryReads;
+    private final LoadingCache<String, Optional<User>> usersByUsername;
+    private final LoadingCache<String, Optional<String>> usernamesByEmail;
+
+    public UserCacheService(UserRepository userRepository,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${user-cache.maximum-size}") long maximumSize,
+                            @Value("${user-cache.ttl}") Duration ttl,
+                            @Value("${user-cache.notify.enabled}") boolean notifyEnabled,
+                            @Value("${user-cache.notify.channel}") String channel) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.notifyEnabled = notifyEnabled;
+        this.channel = channel;
+        // Entries live for the whole TTL, so they are loaded from the primary even when the caller's transaction is
+        // read-only: a lagging replica would otherwise put back the row an eviction just removed
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.primaryReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.usersByUsername = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(CacheLoader.from(this::loadByUsername));
+        this.usernamesByEmail = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(CacheLoader.from(this::loadUsernameByEmail));
+        GuavaCacheMetrics.monitor(meterRegistry, usersByUsername, "users.by-username");
+        GuavaCacheMetrics.monitor(meterRegistry, usernamesByEmail, "users.by-email");
+    }
+
+    public User findUserByUsername(String username) {
+        if (username == null)
+            return null;
+        return get(usersByUsername, keyOf(username)).map(UserCacheService::copyOf).orElse(null);
+    }
+
+    public User findUserByEmail(String email) {
+        if (email == null)
+            return null;
+        Optional<String> username = get(usernamesByEmail, keyOf(email));
+        if (username.isEmpty())
+            return null;
+        User user = findUserByUsername(username.get());
+        if (user != null && email.equalsIgnoreCase(user.getEmail()))
+            return user;
+        // The account behind this email changed since it was cached; fall back to the database
+        usernamesByEmail.invalidate(keyOf(email));
+        User loaded = primaryReads.execute(status -> userRepository.findUserByEmail(email));
+        return loaded == null ? null : copyOf(loaded);
+    }
+
+    public void evict(String username, String email) {
+        List<String> payloads = new ArrayList<>(2);
+        if (username != null)
+            payloads.add(USERNAME_PREFIX + keyOf(username));
+        if (email != null)
+            payloads.add(EMAIL_PREFIX + keyOf(email));
+        evict(payloads);
+    }
+
+    public void evictUsernames(Collection<String> usernames) {
+        List<String> payloads = new ArrayList<>(usernames.size());
+        for (String username : usernames)
+            payloads.add(USERNAME_PREFIX + keyOf(username));
+        evict(payloads);
+    }
+
+    public void evictUsers(Collection<User> users) {
+        List<String> payloads = new ArrayList<>(users.size() * 2);
+        for (User user : users) {
+            payloads.add(USERNAME_PREFIX + keyOf(user.getUsername()));
+            payloads.add(EMAIL_PREFIX + keyOf(user.getEmail()));
+        }
+        evict(payloads);
+    }
+
+    /**
+     * Login dates change on every login, so the cached users of this node are updated rather than evicted, and peers
+     * are not told: their copies show the previous login until they expire.
+     */
+    public void updateLastLogins(Map<String, Date> loginDates) {
+        Runnable update = () -> loginDates.forEach((username, loginDate) ->
+                usersByUsername.asMap().computeIfPresent(keyOf(username), (key, cached) -> cached.map(user -> {
+                    User updated = copyOf(user);
+                    updated.setLastLoginDateDisplay(user.getLastLoginDate());
+                    updated.setLastLoginDate(loginDate);
+                    return updated;
+                })));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    public void onInvalidation(String payload) {
+        if (payload.startsWith(USERNAME_PREFIX))
+            usersByUsername.invalidate(payload.substring(USERNAME_PREFIX.length()));
+        else if (payload.startsWith(EMAIL_PREFIX))
+            usernamesByEmail.invalidate(payload.substring(EMAIL_PREFIX.length()));
+        else
+            log.warn("Ignoring unknown user cache invalidation: {}", payload);
+    }
+
+    public void invalidateAll() {
+        usersByUsername.invalidateAll();
+        usernamesByEmail.invalidateAll();
+    }
+
+    private void evict(List<String> payloads) {
+        if (payloads.isEmpty())
+            return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    payloads.forEach(UserCacheService.this::onInvalidation);
+                }
+            });
+        } else {
+            payloads.forEach(this::onInvalidation);
+        }
+        // NOTIFY is transactional, so peers hear about the change only once it is committed
+        if (notifyEnabled)
+            notifyPeers(payloads);
+    }
+
+    private void notifyPeers(List<String> payloads) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(NOTIFY_SQL)) {
+                statement.setString(1, channel);
+                statement.setArray(2, connection.createArrayOf("text", payloads.toArray()));
+                statement.execute();
+            }
+            return null;
+        });
+    }
+
+    private Optional<User> loadByUsername(String username) {
+        return primaryReads.execute(status -> Optional.ofNullable(userRepository.findUserByUsername(username)).map(UserCacheService::copyOf));
+    }
+
+    private Optional<String> loadUsernameByEmail(String email) {
+        User user = primaryReads.execute(status -> userRepository.findUserByEmail(email));
+        if (user == null)
+            return Optional.empty();
+        usersByUsername.asMap().putIfAbsent(keyOf(user.getUsername()), Optional.of(copyOf(user)));
+        return Optional.of(user.getUsername());
+    }
+
+    private static <V> V get(LoadingCache<String, V> cache, String key) {
+        try {
+            return cache.getUnchecked(key);
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    private static String keyOf(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUserId(), user.getFirstName(), user.getLastName(), user.getUsername(),
+                user.getPassword(), user.getEmail(), user.getProfileImageUrl(), user.getLastLoginDate(),
+                user.getLastLoginDateDisplay(), user.getJoinDate(), user.getRole(),
+                user.getAuthorities() == null ? null : user.getAuthorities().clone(), user.isActive(), user.isNotLocked());
+    }
+}
@@ -0,0 +1,30 @@
+package pl.krutkowski.users.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.enumeration.ExportFormat;
+import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.utility.UserExportWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class UserExportService {
+
+    private final UserRepository userRepository;
+    private final UserExportWriter userExportWriter;
+    private final EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public long exportUsers(ExportFormat format, OutputStream outputStream) throws IOException {
+        try (Stream<User> users = userRepository.streamAllByOrderById()) {
+            return userExportWriter.write(users.peek(entityManager::detach), format, outputStream);
+        }
+    }
+}
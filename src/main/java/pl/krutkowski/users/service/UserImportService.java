@@ -0,0 +1,240 @@
+package pl.krutkowski.users.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserImportReport;
+import pl.krutkowski.users.domain.UserImportResult;
+import pl.krutkowski.users.domain.UserImportRow;
+import pl.krutkowski.users.enumeration.ExportFormat;
+import pl.krutkowski.users.enumeration.ImportStatus;
+import pl.krutkowski.users.enumeration.Role;
+import pl.krutkowski.users.exception.domain.InvalidImportFileException;
+import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.utility.BoundedPasswordEncoder;
+import pl.krutkowski.users.utility.UserImportReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static pl.krutkowski.users.constant.FileConstant.DEFAULT_USER_IMAGE_PATH;
+import static pl.krutkowski.users.constant.UserConstant.*;
+import static pl.krutkowski.users.enumeration.Role.ROLE_USER;
+
+/**
+ * Imports users chunk by chunk: rows are checked against the file and the database with set-based queries,
+ * passwords are hashed on the shared hashing pool, each chunk is inserted in one transaction using JDBC batches,
+ * and welcome emails are written to the outbox in the same transaction.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private final UserRepository userRepository;
+    private final UserImportReader userImportReader;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final EmailService emailService;
+    private final UserCacheService userCacheService;
+    private final UserSuggestService userSuggestService;
+    private final UserAvailabilityService userAvailabilityService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserImportService(UserRepository userRepository,
+                             UserImportReader userImportReader,
+                             BoundedPasswordEncoder passwordEncoder,
+                             EmailService emailService,
+                             UserCacheService userCacheService,
+                             UserSuggestService userSuggestService,
+                             UserAvailabilityService userAvailabilityService,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.userImportReader = userImportReader;
+        this.passwordEncoder = passwordEncoder;
+        this.emailService = emailService;
+        this.userCacheService = userCacheService;
+        this.userSuggestService = userSuggestService;
+        this.userAvailabilityService = userAvailabilityService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public UserImportReport importUsers(InputStream inputStream, ExportFormat format) throws IOException, InvalidImportFileException {
+        List<UserImportRow> rows = userImportReader.read(inputStream, format);
+        String imageBaseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().path(DEFAULT_USER_IMAGE_PATH).toUriString();
+        UserImportResult[] results = new UserImportResult[rows.size()];
+        Set<String> seenUsernames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += IMPORT_CHUNK_SIZE)
+            importChunk(rows, from, Math.min(from + IMPORT_CHUNK_SIZE, rows.size()), seenUsernames, seenEmails, imageBaseUrl, results);
+
+        int created = 0;
+        for (UserImportResult result : results) {
+            if (result.status() == ImportStatus.CREATED)
+                created++;
+        }
+        log.info("Imported {} of {} users", created, results.length);
+        return new UserImportReport(created, results.length - created, Arrays.asList(results));
+    }
+
+    private void importChunk(List<UserImportRow> rows, int from, int to, Set<String> seenUsernames, Set<String> seenEmails,
+                             String imageBaseUrl, UserImportResult[] results) {
+        List<Integer> candidates = new ArrayList<>(to - from);
+        for (int index = from; index < to; index++) {
+            UserImportRow row = rows.get(index);
+            String error = validate(row);
+            if (error != null) {
+                results[index] = result(index, row, ImportStatus.INVALID, error);
+                continue;
+            }
+            String username = keyOf(row.username());
+            String email = keyOf(row.email());
+            if (seenUsernames.contains(username))
+                results[index] = result(index, row, ImportStatus.DUPLICATE, String.format(USERNAME_ALREADY_TAKEN, row.username()));
+            else if (seenEmails.contains(email))
+                results[index] = result(index, row, ImportStatus.DUPLICATE, String.format(EMAIL_ALREADY_TAKEN, row.email()));
+            else {
+                seenUsernames.add(username);
+                seenEmails.add(email);
+                candidates.add(index);
+            }
+        }
+        if (candidates.isEmpty())
+            return;
+
+        Set<String> existingUsernames = userRepository.findExistingUsernames(candidates.stream().map(index -> keyOf(rows.get(index).username())).toList());
+        Set<String> existingEmails = userRepository.findExistingEmails(candidates.stream().map(index -> keyOf(rows.get(index).email())).toList());
+        List<Integer> accepted = new ArrayList<>(candidates.size());
+        for (int index : candidates) {
+            UserImportRow row = rows.get(index);
+            if (existingUsernames.contains(keyOf(row.username())))
+                results[index] = result(index, row, ImportStatus.DUPLICATE, String.format(USERNAME_ALREADY_TAKEN, row.username()));
+            else if (existingEmails.contains(keyOf(row.email())))
+                results[index] = result(index, row, ImportStatus.DUPLICATE, String.format(EMAIL_ALREADY_TAKEN, row.email()));
+            else
+                accepted.add(index);
+        }
+        if (accepted.isEmpty())
+            return;
+
+        List<String> passwords = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++)
+            passwords.add(RandomStringUtils.randomAlphanumeric(10));
+        List<String> encodedPasswords = passwordEncoder.encodeAll(passwords);
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++)
+            users.add(newUser(rows.get(accepted.get(i)), encodedPasswords.get(i), imageBaseUrl));
+
+        try {
+            insert(users, passwords);
+            for (int i = 0; i < accepted.size(); i++)
+                created(accepted.get(i), users.get(i), results);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent writer took one of the names after the check; salvage the rest of the chunk row by row
+            log.warn("Import chunk starting at row {} hit a constraint violation, retrying row by row", from + 1);
+            for (int i = 0; i < accepted.size(); i++) {
+                int index = accepted.get(i);
+                User user = users.get(i);
+                user.setId(null);
+                try {
+                    insert(List.of(user), List.of(passwords.get(i)));
+                    created(index, user, results);
+                } catch (DataIntegrityViolationException violation) {
+                    results[index] = result(index, rows.get(index), rejectionStatus(violation), rejectionMessage(violation, user));
+                }
+            }
+        }
+    }
+
+    private void insert(List<User> users, List<String> passwords) {
+        transactionTemplate.executeWithoutResult(status -> {
+            userAvailabilityService.takenUsers(users);
+            userRepository.saveAll(users);
+            entityManager.flush();
+            entityManager.clear();
+            userCacheService.evictUsers(users);
+            userSuggestService.addedUsers(users);
+            emailService.sendNewPasswordEmails(users, passwords);
+        });
+    }
+
+    private void created(int index, User user, UserImportResult[] results) {
+        results[index] = new UserImportResult(index + 1, user.getUsername(), ImportStatus.CREATED, null);
+    }
+
+    private String validate(UserImportRow row) {
+        if (StringUtils.isBlank(row.username()))
+            return String.format(IMPORT_MISSING_FIELD, "USERNAME");
+        if (StringUtils.isBlank(row.email()))
+            return String.format(IMPORT_MISSING_FIELD, "EMAIL");
+        if (row.role() != null && roleOf(row.role()) == null)
+            return String.format(INVALID_ROLE, row.role());
+        return null;
+    }
+
+    private User newUser(UserImportRow row, String encodedPassword, String imageBaseUrl) {
+        Role role = row.role() == null ? ROLE_USER : roleOf(row.role());
+        User user = new User();
+        user.setUserId(RandomStringUtils.randomNumeric(10));
+        user.setFirstName(row.firstName());
+        user.setLastName(row.lastName());
+        user.setUsername(row.username());
+        user.setEmail(row.email());
+        user.setPassword(encodedPassword);
+        user.setJoinDate(new Date());
+        user.setActive(row.active() == null || row.active());
+        user.setNotLocked(row.notLocked() == null || row.notLocked());
+        user.setRole(role.name());
+        user.setAuthorities(role.getAuthorities());
+        user.setProfileImageUrl(imageBaseUrl + row.username());
+        return user;
+    }
+
+    private ImportStatus rejectionStatus(DataIntegrityViolationException violation) {
+        String constraintName = constraintName(violation);
+        return USERNAME_UNIQUE_INDEX.equalsIgnoreCase(constraintName) || EMAIL_UNIQUE_INDEX.equalsIgnoreCase(constraintName)
+                ? ImportStatus.DUPLICATE : ImportStatus.FAILED;
+    }
+
+    private String rejectionMessage(DataIntegrityViolationException violation, User user) {
+        String constraintName = constraintName(violation);
+        if (USERNAME_UNIQUE_INDEX.equalsIgnoreCase(constraintName))
+            return String.format(USERNAME_ALREADY_TAKEN, user.getUsername());
+        if (EMAIL_UNIQUE_INDEX.equalsIgnoreCase(constraintName))
+            return String.format(EMAIL_ALREADY_TAKEN, user.getEmail());
+        log.error("Failed to import user {}", user.getUsername(), violation);
+        return String.format(IMPORT_FAILED, user.getUsername());
+    }
+
+    private String constraintName(DataIntegrityViolationException violation) {
+        ConstraintViolationException cause = ExceptionUtils.throwableOfType(violation, ConstraintViolationException.class);
+        return cause == null ? null : cause.getConstraintName();
+    }
+
+    private UserImportResult result(int index, UserImportRow row, ImportStatus status, String message) {
+        return new UserImportResult(index + 1, row.username(), status, message);
+    }
+
+    private Role roleOf(String role) {
+        try {
+            return Role.valueOf(role.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String keyOf(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
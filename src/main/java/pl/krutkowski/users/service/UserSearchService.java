@@ -0,0 +1,68 @@
+package pl.krutkowski.users.service;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.krutkowski.users.domain.UserSummary;
+import pl.krutkowski.users.domain.UserSummaryPage;
+import pl.krutkowski.users.enumeration.Role;
+import pl.krutkowski.users.enumeration.SearchMatch;
+import pl.krutkowski.users.exception.domain.InvalidCursorException;
+import pl.krutkowski.users.exception.domain.InvalidSearchException;
+import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.utility.KeysetCursor;
+
+import java.util.List;
+import java.util.Locale;
+
+import static pl.krutkowski.users.constant.UserConstant.*;
+
+@Service
+@RequiredArgsConstructor
+public class UserSearchService {
+
+    private static final char LIKE_ESCAPE = '!';
+
+    private final UserRepository userRepository;
+
+    @Transactional(readOnly = true)
+    public UserSummaryPage search(String term, SearchMatch match, String cursor, int size, String role, Boolean active,
+                                  Boolean notLocked) throws InvalidSearchException, InvalidCursorException {
+        String normalizedTerm = StringUtils.trimToEmpty(term).toLowerCase(Locale.ROOT);
+        if (normalizedTerm.length() < match.getMinLength())
+            throw new InvalidSearchException(String.format(SEARCH_TERM_TOO_SHORT, match.getMinLength()));
+        if (normalizedTerm.length() > MAX_SEARCH_TERM_LENGTH)
+            throw new InvalidSearchException(String.format(SEARCH_TERM_TOO_LONG, MAX_SEARCH_TERM_LENGTH));
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        String roleName = StringUtils.isBlank(role) ? null : roleName(role);
+        List<UserSummary> users = userRepository.searchAfter(KeysetCursor.decode(cursor), pattern(normalizedTerm, match),
+                roleName, active, notLocked, Limit.of(pageSize + 1));
+        if (users.size() <= pageSize)
+            return new UserSummaryPage(users, null);
+        List<UserSummary> page = users.subList(0, pageSize);
+        return new UserSummaryPage(page, KeysetCursor.encode(page.get(pageSize - 1).id()));
+    }
+
+    private String pattern(String term, SearchMatch match) {
+        StringBuilder pattern = new StringBuilder(term.length() + 2);
+        if (match == SearchMatch.CONTAINS)
+            pattern.append('%');
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE)
+                pattern.append(LIKE_ESCAPE);
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    private String roleName(String role) throws InvalidSearchException {
+        try {
+            return Role.valueOf(role.toUpperCase()).name();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchException(String.format(INVALID_ROLE, role));
+        }
+    }
+}
@@ -2,17 +2,23 @@ package pl.krutkowski.users.service;
 
 import org.springframework.web.multipart.MultipartFile;
 import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserPage;
+import pl.krutkowski.users.enumeration.UserField;
 import pl.krutkowski.users.exception.domain.*;
 
 import javax.mail.MessagingException;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface UserService {
 
     User registerUser(String firstName, String lastName, String username, String email) throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException;
 
-    List<User> getUsers();
+    List<Map<String, Object>> getUsers(Set<UserField> fields);
+
+    UserPage getUsersPage(String cursor, int size, String role, Boolean active, Boolean notLocked, Set<UserField> fields) throws InvalidCursorException, InvalidPageRequestException;
 
     User findUserUsername(String username);
 
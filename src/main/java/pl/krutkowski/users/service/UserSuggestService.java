@@ -0,0 +1,130 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UsersDeletedEvent;
+import pl.krutkowski.users.enumeration.SuggestField;
+import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.utility.PrefixIndex;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static pl.krutkowski.users.constant.UserConstant.MAX_SUGGEST_LIMIT;
+
+/**
+ * Typeahead over usernames and emails served from in-process {@link PrefixIndex}es. They are loaded with a
+ * streaming scan at startup and on every rebuild interval, which also picks up writes made on other nodes,
+ * and are updated after commit by the writes on this node.
+ */
+@Slf4j
+@Service
+public class UserSuggestService {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PrefixIndex usernames = new PrefixIndex();
+    private final PrefixIndex emails = new PrefixIndex();
+    private final Timer suggestTimer;
+
+    public UserSuggestService(UserRepository userRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.suggestTimer = Timer.builder("users.suggest").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        monitor(meterRegistry, usernames, SuggestField.USERNAME);
+        monitor(meterRegistry, emails, SuggestField.EMAIL);
+    }
+
+    public List<String> suggest(SuggestField field, String prefix, int limit) {
+        if (StringUtils.isBlank(prefix))
+            return List.of();
+        int suggestLimit = Math.max(1, Math.min(limit, MAX_SUGGEST_LIMIT));
+        return suggestTimer.record(() -> indexOf(field).suggest(prefix.trim(), suggestLimit));
+    }
+
+    public void added(String username, String email) {
+        afterCommit(() -> {
+            usernames.add(username);
+            if (email != null)
+                emails.add(email);
+        });
+    }
+
+    public void removed(String username, String email) {
+        afterCommit(() -> {
+            usernames.remove(username);
+            if (email != null)
+                emails.remove(email);
+        });
+    }
+
+    public void addedUsers(Collection<User> users) {
+        users.forEach(user -> added(user.getUsername(), user.getEmail()));
+    }
+
+    @TransactionalEventListener
+    public void onUsersDeleted(UsersDeletedEvent event) {
+        event.usernames().forEach(usernames::remove);
+        event.emails().forEach(emails::remove);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${user-suggest.rebuild-interval}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> keys = userRepository.streamAllUsernames()) {
+                usernames.rebuild(keys);
+            }
+            try (Stream<String> keys = userRepository.streamAllEmails()) {
+                emails.rebuild(keys);
+            }
+        });
+        log.info("Rebuilt suggestion index of {} usernames and {} emails in {} ms, {} bytes", usernames.size(), emails.size(),
+                (System.nanoTime() - start) / 1_000_000, usernames.packedBytes() + emails.packedBytes());
+    }
+
+    @Scheduled(fixedDelayString = "${user-suggest.compact-interval}")
+    public void compact() {
+        usernames.compact();
+        emails.compact();
+    }
+
+    private PrefixIndex indexOf(SuggestField field) {
+        return field == SuggestField.USERNAME ? usernames : emails;
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private static void monitor(MeterRegistry meterRegistry, PrefixIndex index, SuggestField field) {
+        String tag = field.name().toLowerCase();
+        Gauge.builder("users.suggest.keys", index, PrefixIndex::size).tag("field", tag).register(meterRegistry);
+        Gauge.builder("users.suggest.pending", index, PrefixIndex::pendingChanges).tag("field", tag).register(meterRegistry);
+        Gauge.builder("users.suggest.bytes", index, PrefixIndex::packedBytes).tag("field", tag).register(meterRegistry);
+    }
+}
@@ -0,0 +1,59 @@
+package pl.krutkowski.users.service.impl;
+
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.krutkowski.users.service.LoginAttemptStore;
+import pl.krutkowski.users.utility.SlidingWindowCounters;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Service
+@ConditionalOnProperty(name = "login-attempt.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+    private final SlidingWindowCounters loginAttempts;
+
+    public InMemoryLoginAttemptStore(@Value("${login-attempt.window}") Duration window,
+                                     @Value("${login-attempt.buckets}") int buckets,
+                                     @Value("${login-attempt.maximum-size}") int maximumSize,
+                                     @Value("${login-attempt.max-attempts}") int maxAttempts,
+                                     MeterRegistry meterRegistry) {
+        // Locked accounts must stay locked however many other usernames are tried
+        this.loginAttempts = new SlidingWindowCounters(window, buckets, maximumSize, maxAttempts);
+        Gauge.builder("login.attempts.size", loginAttempts, SlidingWindowCounters::size).register(meterRegistry);
+        FunctionCounter.builder("login.attempts.hits", loginAttempts, SlidingWindowCounters::hitCount).register(meterRegistry);
+        FunctionCounter.builder("login.attempts.misses", loginAttempts, SlidingWindowCounters::missCount).register(meterRegistry);
+        FunctionCounter.builder("login.attempts.evictions", loginAttempts, SlidingWindowCounters::evictionCount).register(meterRegistry);
+    }
+
+    @Override
+    public int increment(String username) {
+        return loginAttempts.increment(keyOf(username), System.currentTimeMillis());
+    }
+
+    @Override
+    public int getAttempts(String username) {
+        return loginAttempts.get(keyOf(username), System.currentTimeMillis());
+    }
+
+    @Override
+    public void reset(String username) {
+        loginAttempts.reset(keyOf(username));
+    }
+
+    @Scheduled(fixedDelayString = "${login-attempt.sweep-interval}")
+    public void removeExpiredAttempts() {
+        loginAttempts.removeExpired(System.currentTimeMillis());
+    }
+
+    private long keyOf(String username) {
+        return Hashing.farmHashFingerprint64().hashString(username, StandardCharsets.UTF_8).asLong();
+    }
+}
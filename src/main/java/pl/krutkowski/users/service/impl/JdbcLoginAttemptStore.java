@@ -0,0 +1,151 @@
+package pl.krutkowski.users.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.krutkowski.users.service.LoginAttemptStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "login-attempt.store", havingValue = "jdbc")
+public class JdbcLoginAttemptStore implements LoginAttemptStore {
+
+    private static final String SELECT_ATTEMPTS_SQL =
+            "SELECT attempts FROM login_attempt WHERE username = ? AND window_start >= now() - make_interval(secs => ?)";
+    private static final String UPSERT_ATTEMPTS_SQL = """
+            INSERT INTO login_attempt (username, attempts, window_start) VALUES (?, ?, now())
+            ON CONFLICT (username) DO UPDATE SET
+                attempts = CASE WHEN login_attempt.window_start < now() - make_interval(secs => ?)
+                                THEN EXCLUDED.attempts ELSE login_attempt.attempts + EXCLUDED.attempts END,
+                window_start = CASE WHEN login_attempt.window_start < now() - make_interval(secs => ?)
+                                    THEN now() ELSE login_attempt.window_start END""";
+    private static final String DELETE_ATTEMPTS_SQL = "DELETE FROM login_attempt WHERE username = ?";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM login_attempt WHERE window_start < now() - make_interval(secs => ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double windowSeconds;
+    private final Cache<String, Integer> persistedAttempts;
+    // A reset drops a user's counter, so a flush that finds a different one knows the user was reset meanwhile
+    private final ConcurrentHashMap<String, AtomicInteger> pendingIncrements = new ConcurrentHashMap<>();
+    private final Set<String> pendingResets = ConcurrentHashMap.newKeySet();
+
+    public JdbcLoginAttemptStore(JdbcTemplate jdbcTemplate,
+                                 @Value("${login-attempt.window}") Duration window,
+                                 @Value("${login-attempt.maximum-size}") int maximumSize,
+                                 @Value("${login-attempt.jdbc.near-cache-ttl}") Duration nearCacheTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.windowSeconds = window.toSeconds();
+        this.persistedAttempts = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(nearCacheTtl)
+                .build();
+    }
+
+    @Override
+    public int increment(String username) {
+        AtomicInteger pending = pendingIncrements.compute(username, (key, counter) -> {
+            if (counter == null)
+                counter = new AtomicInteger();
+            counter.incrementAndGet();
+            return counter;
+        });
+        return getPersistedAttempts(username) + pending.get();
+    }
+
+    @Override
+    public int getAttempts(String username) {
+        AtomicInteger pending = pendingIncrements.get(username);
+        return getPersistedAttempts(username) + (pending == null ? 0 : pending.get());
+    }
+
+    @Override
+    public void reset(String username) {
+        pendingIncrements.remove(username);
+        persistedAttempts.put(username, 0);
+        pendingResets.add(username);
+    }
+
+    /**
+     * Pending changes leave memory only once they are written, so a failed batch is retried by the next flush and
+     * a read in between still counts them. Until they are taken out of pendingIncrements they may be counted twice,
+     * which errs towards locking an account rather than letting an attempt through. A user reset while the batch
+     * ran keeps both the new increments and the zeroed near cache; the pre-reset row is deleted by the next flush.
+     */
+    @Scheduled(fixedDelayString = "${login-attempt.jdbc.flush-interval}")
+    public void flush() {
+        List<String> resets = sorted(pendingResets);
+        if (!resets.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ATTEMPTS_SQL, resets.stream().map(username -> new Object[]{username}).toList());
+            resets.forEach(pendingResets::remove);
+        }
+
+        Map<String, AtomicInteger> counters = new LinkedHashMap<>();
+        List<Object[]> increments = new ArrayList<>();
+        for (String username : sorted(pendingIncrements.keySet())) {
+            AtomicInteger counter = pendingIncrements.get(username);
+            if (counter == null)
+                continue;
+            int delta = counter.get();
+            counters.put(username, counter);
+            increments.add(new Object[]{username, delta, windowSeconds, windowSeconds});
+        }
+        if (increments.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate(UPSERT_ATTEMPTS_SQL, increments);
+        for (Object[] increment : increments) {
+            String username = (String) increment[0];
+            int delta = (Integer) increment[1];
+            AtomicInteger flushed = counters.get(username);
+            pendingIncrements.computeIfPresent(username, (key, counter) -> {
+                if (counter != flushed)
+                    return counter;
+                persistedAttempts.asMap().computeIfPresent(username, (name, attempts) -> attempts + delta);
+                // Increments that arrived during the batch stay pending for the next flush
+                return counter.addAndGet(-delta) > 0 ? counter : null;
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${login-attempt.sweep-interval}")
+    public void removeExpiredAttempts() {
+        int removed = jdbcTemplate.update(DELETE_EXPIRED_SQL, windowSeconds);
+        log.debug("Removed {} expired login attempt rows", removed);
+    }
+
+    private int getPersistedAttempts(String username) {
+        try {
+            return persistedAttempts.get(username, () -> loadAttempts(username));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.error("Failed to load login attempts of {}", username, e);
+            return 0;
+        }
+    }
+
+    private int loadAttempts(String username) {
+        List<Integer> attempts = jdbcTemplate.queryForList(SELECT_ATTEMPTS_SQL, Integer.class, username, windowSeconds);
+        return attempts.isEmpty() ? 0 : attempts.get(0);
+    }
+
+    private List<String> sorted(Set<String> usernames) {
+        List<String> sorted = new ArrayList<>(usernames);
+        // A stable lock order keeps batches from different nodes from deadlocking on the same rows
+        sorted.sort(null);
+        return sorted;
+    }
+}
@@ -4,27 +4,40 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserPage;
 import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.domain.UsersDeletedEvent;
 import pl.krutkowski.users.enumeration.Role;
+import pl.krutkowski.users.enumeration.UserField;
 import pl.krutkowski.users.exception.domain.*;
+import pl.krutkowski.users.repository.UserProjectionRepository;
 import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.service.UserAvailabilityService;
 import pl.krutkowski.users.service.EmailService;
 import pl.krutkowski.users.service.LoginAttemptService;
+import pl.krutkowski.users.service.ProfileImageProcessor;
+import pl.krutkowski.users.service.UserCacheService;
 import pl.krutkowski.users.service.UserService;
+import pl.krutkowski.users.service.UserSuggestService;
+import pl.krutkowski.users.utility.ImageFiles;
+import pl.krutkowski.users.utility.KeysetCursor;
 
 import javax.mail.MessagingException;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -32,6 +45,8 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.springframework.http.MediaType.*;
@@ -44,33 +59,51 @@ import static pl.krutkowski.users.enumeration.Role.ROLE_USER;
 @Service
 @Transactional
 @Qualifier("UserDetailService")
-public class UserServiceImpl implements UserService, UserDetailsService {
+public class UserServiceImpl implements UserService, UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
     private final LoginAttemptService loginAttemptService;
     private final EmailService emailService;
+    private final UserCacheService userCacheService;
+    private final UserSuggestService userSuggestService;
+    private final UserAvailabilityService userAvailabilityService;
+    private final ProfileImageProcessor profileImageProcessor;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findUserByUsername(username);
+        User user = userCacheService.findUserByUsername(username);
         if (user == null) {
             String msg = String.format(USER_NOT_FOUND_BY_USERNAME, username);
             log.error(msg);
             throw new UsernameNotFoundException(msg);
         }
         validateLoginAttempt(user);
-        user.setLastLoginDateDisplay(user.getLastLoginDate());
-        user.setLastLoginDate(new Date());
-        userRepository.save(user);
         UserPrinciple userPrinciple = new UserPrinciple(user);
         log.info("Returning found user by username: {}", username);
         return userPrinciple;
     }
 
     @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findUserByUsername(userDetails.getUsername());
+        if (user == null) {
+            String msg = String.format(USER_NOT_FOUND_BY_USERNAME, userDetails.getUsername());
+            log.error(msg);
+            throw new UsernameNotFoundException(msg);
+        }
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        userCacheService.evict(user.getUsername(), null);
+        log.info("Upgraded password encoding of user: {}", user.getUsername());
+        // The caller keeps the returned principal, so it carries the new hash rather than the one just replaced
+        return new UserPrinciple(user);
+    }
+
+    @Override
+    @Transactional(rollbackFor = {UsernameExistException.class, EmailExistException.class})
     public User registerUser(String firstName, String lastName, String username, String email) throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException {
-        validateUsernameAndEmail(StringUtils.EMPTY, username, email);
         User user = new User();
         user.setUserId(generateUserId());
         String password = generatePassword();
@@ -86,14 +119,17 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         user.setRole(ROLE_USER.name());
         user.setAuthorities(ROLE_USER.getAuthorities());
         user.setProfileImageUrl(getTemporaryImageUrl(username));
-        userRepository.save(user);
+        userAvailabilityService.taken(username, email);
+        saveUniqueUser(user);
+        userCacheService.evict(username, email);
+        userSuggestService.added(username, email);
         emailService.sendNewPasswordEmail(firstName, email, password);
         return user;
     }
 
     @Override
+    @Transactional(rollbackFor = {UsernameExistException.class, EmailExistException.class})
     public User addUser(String firstName, String lastName, String username, String email, String role, boolean isNotLocked, boolean isActive, MultipartFile profileImage) throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, MessagingException, NotAnImageFileException {
-        validateUsernameAndEmail(StringUtils.EMPTY, username, email);
         User user = new User();
         String password = generatePassword();
         String passwordEncoded = encodePassword(password);
@@ -109,15 +145,21 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         user.setRole(getRoleEnumName(role).name());
         user.setAuthorities(getRoleEnumName(role).getAuthorities());
         user.setProfileImageUrl(getTemporaryImageUrl(username));
-        userRepository.save(user);
+        userAvailabilityService.taken(username, email);
+        saveUniqueUser(user);
+        userCacheService.evict(username, email);
+        userSuggestService.added(username, email);
         saveProfileImage(user, profileImage);
         emailService.sendNewPasswordEmail(firstName, email, password);
         return user;
     }
 
     @Override
+    @Transactional(rollbackFor = {UsernameExistException.class, EmailExistException.class})
     public User updateUser(String currentUsername, String newFirstName, String newLastName, String newUsername, String newEmail, String role, boolean isNotLocked, boolean isActive, MultipartFile profileImage) throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException {
-        User currentUser = validateUsernameAndEmail(currentUsername, newUsername, newEmail);
+        User currentUser = findExistingUser(currentUsername);
+        userCacheService.evict(currentUser.getUsername(), currentUser.getEmail());
+        userSuggestService.removed(currentUser.getUsername(), currentUser.getEmail());
         currentUser.setFirstName(newFirstName);
         currentUser.setLastName(newLastName);
         currentUser.setUsername(newUsername);
@@ -126,24 +168,21 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         currentUser.setNotLocked(isNotLocked);
         currentUser.setRole(getRoleEnumName(role).name());
         currentUser.setAuthorities(getRoleEnumName(role).getAuthorities());
+        userAvailabilityService.taken(newUsername, newEmail);
+        saveUniqueUser(currentUser);
+        userCacheService.evict(newUsername, newEmail);
+        userSuggestService.added(newUsername, newEmail);
         saveProfileImage(currentUser, profileImage);
-        userRepository.save(currentUser);
         return currentUser;
     }
 
     @Override
     public void deleteUser(String username) {
-        deleteUserFolderFromDisck(username);
+        User user = userCacheService.findUserByUsername(username);
         userRepository.deleteUserByUsername(username);
-    }
-
-    private void deleteUserFolderFromDisck(String username) {
-        Path userFolder = Paths.get(USER_FOLDER + username).toAbsolutePath().normalize();
-        try {
-            FileUtils.deleteDirectory(new File(userFolder.toString()));
-        } catch (IOException e) {
-            log.error("Filed to delete user's folder{}", e.getMessage());
-        }
+        userCacheService.evict(username, user == null ? null : user.getEmail());
+        List<String> emails = user == null || user.getEmail() == null ? List.of() : List.of(user.getEmail());
+        eventPublisher.publishEvent(new UsersDeletedEvent(List.of(username), emails));
     }
 
     @Override
@@ -155,12 +194,13 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         String newPassword = generatePassword();
         user.setPassword(encodePassword(newPassword));
         userRepository.save(user);
+        userCacheService.evict(user.getUsername(), user.getEmail());
         emailService.sendNewPasswordEmail(user.getFirstName(), user.getEmail(), newPassword);
     }
 
     @Override
     public User updateProfileImage(String username, MultipartFile profileImage) throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException {
-        User user = validateUsernameAndEmail(username, null, null);
+        User user = findExistingUser(username);
         saveProfileImage(user, profileImage);
         return user;
     }
@@ -182,61 +222,82 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     }
 
     @Override
-    public List<User> getUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getUsers(Set<UserField> fields) {
+        List<Map<String, Object>> users = userRepository.findPageAfter(0L, null, null, null, fields, MAX_LIST_SIZE);
+        users.forEach(user -> user.remove(UserProjectionRepository.ID));
+        return users;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserPage getUsersPage(String cursor, int size, String role, Boolean active, Boolean notLocked, Set<UserField> fields) throws InvalidCursorException, InvalidPageRequestException {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        String roleName = StringUtils.isBlank(role) ? null : pageRole(role).name();
+        List<Map<String, Object>> users = userRepository.findPageAfter(KeysetCursor.decode(cursor), roleName, active, notLocked, fields, pageSize + 1);
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = KeysetCursor.encode((Long) users.get(pageSize - 1).get(UserProjectionRepository.ID));
+        }
+        users.forEach(user -> user.remove(UserProjectionRepository.ID));
+        return new UserPage(users, nextCursor);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public User findUserUsername(String username) {
-        return userRepository.findUserByUsername(username);
+        return userCacheService.findUserByUsername(username);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public User findUserByEmail(String email) {
-        return userRepository.findUserByEmail(email);
+        return userCacheService.findUserByEmail(email);
     }
 
-    private User validateUsernameAndEmail(String currentUsername, String newUsername, String newEmail) throws UsernameExistException, UserNotFoundException, EmailExistException {
-        String msg;
-        User userNewByUsername = findUserUsername(newUsername);
-        User userNewByEmail = findUserByEmail(newEmail);
+    private User findExistingUser(String username) throws UserNotFoundException {
+        User user = userRepository.findUserByUsername(username);
+        if(user == null) {
+            String msg = String.format(USER_NOT_FOUND_BY_USERNAME, username);
+            log.error(msg);
+            throw new UserNotFoundException(msg);
+        }
+        return user;
+    }
 
-        if(!StringUtils.isBlank(currentUsername)) {
-            User currentUser = findUserUsername(currentUsername);
-            if(currentUser == null){
-                msg = String.format(USER_NOT_FOUND_BY_USERNAME, currentUsername);
-                log.error(msg);
-                throw new UserNotFoundException(msg);
-            }
-            if(userNewByUsername != null && !currentUser.getId().equals(userNewByUsername.getId())) {
-                msg = String.format(USERNAME_ALREADY_TAKEN, newUsername);
+    /**
+     * Uniqueness is enforced by the case-insensitive unique indexes, so concurrent writes of the same username
+     * or email cannot both pass; the flush surfaces the violation here instead of at commit.
+     */
+    private User saveUniqueUser(User user) throws UsernameExistException, EmailExistException {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            ConstraintViolationException violation = ExceptionUtils.throwableOfType(e, ConstraintViolationException.class);
+            String constraintName = violation == null ? null : violation.getConstraintName();
+            String msg;
+            if(USERNAME_UNIQUE_INDEX.equalsIgnoreCase(constraintName)) {
+                msg = String.format(USERNAME_ALREADY_TAKEN, user.getUsername());
                 log.error(msg);
                 throw new UsernameExistException(msg);
             }
-            if(userNewByEmail != null && !currentUser.getId().equals(userNewByEmail.getId())){
-                msg = String.format(EMAIL_ALREADY_TAKEN, newEmail);
-                log.error(msg);
-                throw new EmailExistException(String.format(EMAIL_ALREADY_TAKEN, newEmail));
-            }
-            return currentUser;
-        } else {
-            if(userNewByUsername != null)   {
-                 msg = String.format(USERNAME_ALREADY_TAKEN, newUsername);
-                 log.error(msg);
-                 throw new UsernameExistException(msg);
-            }
-            if(userNewByEmail != null) {
-                msg = String.format(EMAIL_ALREADY_TAKEN, newEmail);
+            if(EMAIL_UNIQUE_INDEX.equalsIgnoreCase(constraintName)) {
+                msg = String.format(EMAIL_ALREADY_TAKEN, user.getEmail());
                 log.error(msg);
                 throw new EmailExistException(msg);
             }
-            return null;
+            throw e;
         }
     }
 
     private void validateLoginAttempt(User user) {
         if(user.isNotLocked()){
-            user.setNotLocked(!loginAttemptService.hasExceededMaxAttempt(user.getUsername()));
+            if(loginAttemptService.hasExceededMaxAttempt(user.getUsername())) {
+                user.setNotLocked(false);
+                userRepository.lockUser(user.getUsername());
+                userCacheService.evict(user.getUsername(), null);
+            }
         } else {
             loginAttemptService.evictUserFromCache(user.getUsername());
         }
@@ -252,15 +313,28 @@ public class UserServiceImpl implements UserService, UserDetailsService {
                 log.info(DIRECTORY_CREATED);
             }
             Files.deleteIfExists(Paths.get(userFolder + user.getUserId() + DOT + JPG_EXTENSION));
-            Files.copy(profileImage.getInputStream(), userFolder.resolve(user.getUsername() + DOT + JPG_EXTENSION), REPLACE_EXISTING);
-            user.setProfileImageUrl(setProfileImageUrl(user.getUsername()));
+            Path imageFile = userFolder.resolve(user.getUsername() + DOT + JPG_EXTENSION);
+            Files.copy(profileImage.getInputStream(), imageFile, REPLACE_EXISTING);
+            profileImageProcessor.process(imageFile);
+            user.setProfileImageUrl(setProfileImageUrl(user.getUsername(), ImageFiles.version(imageFile)));
             userRepository.save(user);
+            userCacheService.evict(user.getUsername(), null);
             log.info(FILE_SAVED_IN_FILE_SYSTEM + profileImage.getOriginalFilename());
         }
     }
 
-    private String setProfileImageUrl(String username) {
-        return ServletUriComponentsBuilder.fromCurrentContextPath().path(USER_IMAGE_PATH + username + FORWARD_SLASH + username + DOT + JPG_EXTENSION).toUriString();
+    private String setProfileImageUrl(String username, String version) {
+        // The version changes with every upload, so the image can be cached for good under this URL
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path(USER_IMAGE_PATH + username + FORWARD_SLASH + username + DOT + JPG_EXTENSION)
+                .queryParam(ImageFiles.VERSION_PARAMETER, version).toUriString();
+    }
+
+    private Role pageRole(String role) throws InvalidPageRequestException {
+        try {
+            return getRoleEnumName(role);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException(String.format(INVALID_ROLE, role));
+        }
     }
 
     private Role getRoleEnumName(String role) {
@@ -0,0 +1,64 @@
+package pl.krutkowski.users.utility;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import pl.krutkowski.users.enumeration.Permission;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps every {@link Permission} to its bit and hands out one shared, immutable authority list per bit combination,
+ * so requests never allocate authorities and permission checks are a single bit test.
+ */
+public final class AuthorityRegistry {
+
+    private static final Permission[] PERMISSIONS = Permission.values();
+    // Masks need not be contiguous, so the table runs up to the highest bit in use
+    private static final int ALL_PERMISSIONS = allPermissions();
+    private static final List<List<GrantedAuthority>> AUTHORITIES_BY_MASK = new ArrayList<>(ALL_PERMISSIONS + 1);
+
+    static {
+        GrantedAuthority[] authorities = new GrantedAuthority[PERMISSIONS.length];
+        for (Permission permission : PERMISSIONS)
+            authorities[permission.ordinal()] = new SimpleGrantedAuthority(permission.getAuthority());
+        for (int mask = 0; mask <= ALL_PERMISSIONS; mask++) {
+            List<GrantedAuthority> granted = new ArrayList<>();
+            for (Permission permission : PERMISSIONS) {
+                if ((mask & permission.getMask()) != 0)
+                    granted.add(authorities[permission.ordinal()]);
+            }
+            AUTHORITIES_BY_MASK.add(List.copyOf(granted));
+        }
+    }
+
+    private AuthorityRegistry() {
+    }
+
+    private static int allPermissions() {
+        int mask = 0;
+        for (Permission permission : PERMISSIONS)
+            mask |= permission.getMask();
+        return mask;
+    }
+
+    public static int maskOf(String... authorities) {
+        int mask = 0;
+        if (authorities == null)
+            return mask;
+        for (String authority : authorities) {
+            Permission permission = Permission.fromAuthority(authority);
+            if (permission != null)
+                mask |= permission.getMask();
+        }
+        return mask;
+    }
+
+    public static List<GrantedAuthority> authoritiesOf(int mask) {
+        return AUTHORITIES_BY_MASK.get(mask & ALL_PERMISSIONS);
+    }
+
+    public static boolean hasPermission(int mask, Permission permission) {
+        return permission != null && (mask & permission.getMask()) != 0;
+    }
+}
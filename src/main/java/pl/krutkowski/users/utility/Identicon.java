@@ -0,0 +1,70 @@
+package pl.krutkowski.users.utility;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A symmetric five by five pattern in one colour on a light background, both taken from the SHA-256 of the seed,
+ * so the same seed always gives the same picture. It is drawn into a two-colour indexed image, which keeps the
+ * PNG around a few hundred bytes.
+ */
+public final class Identicon {
+
+    private static final int GRID = 5;
+    private static final int HALF = (GRID + 1) / 2;
+    private static final Color BACKGROUND = new Color(0xF0, 0xF0, 0xF0);
+
+    private Identicon() {
+    }
+
+    public static byte[] png(String seed, int size) {
+        byte[] hash = sha256(seed);
+        int cell = size / (GRID + 1);
+        int margin = (size - cell * GRID) / 2;
+        Color foreground = Color.getHSBColor((hash[0] & 0xFF) / 256f, 0.45f + (hash[1] & 0x3F) / 256f, 0.55f + (hash[2] & 0x3F) / 256f);
+        IndexColorModel palette = new IndexColorModel(1, 2,
+                new byte[]{(byte) BACKGROUND.getRed(), (byte) foreground.getRed()},
+                new byte[]{(byte) BACKGROUND.getGreen(), (byte) foreground.getGreen()},
+                new byte[]{(byte) BACKGROUND.getBlue(), (byte) foreground.getBlue()});
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_BINARY, palette);
+        for (int row = 0; row < GRID; row++) {
+            for (int column = 0; column < HALF; column++) {
+                int bit = row * HALF + column;
+                if ((hash[3 + bit / 8] >> (bit % 8) & 1) == 0)
+                    continue;
+                fill(image, margin + column * cell, margin + row * cell, cell);
+                fill(image, margin + (GRID - 1 - column) * cell, margin + row * cell, cell);
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream(512);
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return png.toByteArray();
+    }
+
+    private static void fill(BufferedImage image, int x, int y, int cell) {
+        for (int dy = 0; dy < cell; dy++) {
+            for (int dx = 0; dx < cell; dx++)
+                image.getRaster().setSample(x + dx, y + dy, 0, 1);
+        }
+    }
+
+    private static byte[] sha256(String seed) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(seed.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package pl.krutkowski.users.utility;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+import pl.krutkowski.users.exception.domain.ImageNotFoundException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static pl.krutkowski.users.constant.FileConstant.IMAGE_NOT_FOUND;
+
+/**
+ * Serves image files without reading them onto the heap. Each response carries a strong ETag and Last-Modified
+ * built from the file's size and modification time, so conditional GETs end in a 304. Responses the caller marks
+ * immutable are cacheable for a year; the rest must revalidate. Full responses of large files go out
+ * through Tomcat's sendfile. Everything else, Range requests included, streams from a {@link FileSystemResource}.
+ */
+public final class ImageFiles {
+
+    public static final String VERSION_PARAMETER = "v";
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+    // Below Tomcat's own sendfile threshold a plain write is cheaper than handing the file to the poller
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final int SNIFF_LENGTH = 12;
+
+    private ImageFiles() {
+    }
+
+    /**
+     * Resolves {@code first} and {@code more} under {@code root}, refusing anything that would escape it.
+     */
+    public static Path resolve(Path root, String first, String... more) throws ImageNotFoundException {
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        Path file = normalizedRoot.resolve(Path.of(first, more)).normalize();
+        if (!file.startsWith(normalizedRoot) || file.equals(normalizedRoot))
+            throw new ImageNotFoundException(IMAGE_NOT_FOUND + Path.of(first, more));
+        return file;
+    }
+
+    public static ResponseEntity<Resource> serve(Path file, boolean immutable, ServletWebRequest webRequest)
+            throws IOException, ImageNotFoundException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ImageNotFoundException(IMAGE_NOT_FOUND + file.getFileName());
+        }
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String eTag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+        CacheControl cacheControl = immutable ? IMMUTABLE : REVALIDATE;
+        if (webRequest.checkNotModified(eTag, lastModified))
+            return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).lastModified(lastModified).cacheControl(cacheControl).build();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .cacheControl(cacheControl)
+                .contentType(detectMediaType(file));
+        HttpServletRequest request = webRequest.getRequest();
+        if (size >= SENDFILE_MIN_SIZE && HttpMethod.GET.matches(request.getMethod())
+                && request.getHeader(HttpHeaders.RANGE) == null
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return response.header(HttpHeaders.ACCEPT_RANGES, "bytes").contentLength(size).build();
+        }
+        return response.body(new FileSystemResource(file));
+    }
+
+    /**
+     * The version query parameter that pins a URL to the current contents of {@code file}.
+     */
+    public static String version(Path file) throws IOException {
+        return version(Files.getLastModifiedTime(file).toMillis());
+    }
+
+    /**
+     * Whether {@code version} pins the current contents of {@code file}.
+     */
+    public static boolean isVersion(Path file, String version) throws IOException {
+        try {
+            return version != null && version.equals(version(file));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Uploads are all stored with a .jpg name, so the type comes from the file's magic number.
+     */
+    public static MediaType detectMediaType(Path file) throws IOException {
+        byte[] header;
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            header = inputStream.readNBytes(SNIFF_LENGTH);
+        }
+        if (startsWith(header, 0xFF, 0xD8, 0xFF))
+            return MediaType.IMAGE_JPEG;
+        if (startsWith(header, 0x89, 'P', 'N', 'G'))
+            return MediaType.IMAGE_PNG;
+        if (startsWith(header, 'G', 'I', 'F', '8'))
+            return MediaType.IMAGE_GIF;
+        if (header.length == SNIFF_LENGTH && startsWith(header, 'R', 'I', 'F', 'F')
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P')
+            return MediaType.parseMediaType("image/webp");
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static String version(long lastModified) {
+        return Long.toHexString(lastModified);
+    }
+
+    private static boolean startsWith(byte[] header, int... magic) {
+        if (header.length < magic.length)
+            return false;
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[i] & 0xFF) != magic[i])
+                return false;
+        }
+        return true;
+    }
+}
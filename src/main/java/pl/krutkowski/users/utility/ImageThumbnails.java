@@ -0,0 +1,183 @@
+package pl.krutkowski.users.utility;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Square JPEG thumbnails. The source is decoded at the lowest resolution that still covers the largest thumbnail,
+ * so a large photo never sits on the heap at full size, and turned upright by its EXIF orientation. Thumbnails are
+ * centre-cropped, flattened onto white and downscaled in halving steps. They are written without any metadata.
+ */
+public final class ImageThumbnails {
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final String APP1_MARKER = "225";
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final int IFD_ENTRY_LENGTH = 12;
+
+    private ImageThumbnails() {
+    }
+
+    /**
+     * Decodes {@code file}, or throws if it is not an image or has more than {@code maxPixels} pixels.
+     */
+    public static BufferedImage read(Path file, int largestSize, long maxPixels) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null)
+                throw new IOException("Cannot read " + file);
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+                throw new IOException(file.getFileName() + " is not a supported image");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels)
+                    throw new IOException(file.getFileName() + " is " + width + "x" + height + ", larger than " + maxPixels + " pixels");
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the largest thumbnail so the final downscale still has detail to work with
+                int subsampling = Math.max(1, Math.min(width, height) / (largestSize * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                int orientation = orientation(reader);
+                return orient(reader.read(0, param), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static BufferedImage square(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage current = flatten(source.getSubimage((source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side));
+        while (current.getWidth() / 2 >= size)
+            current = scale(current, current.getWidth() / 2);
+        return current.getWidth() == size ? current : scale(current, size);
+    }
+
+    public static void writeJpeg(BufferedImage image, float quality, OutputStream outputStream) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * The EXIF orientation (1 to 8) of a JPEG, or 1 when there is none.
+     */
+    private static int orientation(ImageReader reader) throws IOException {
+        IIOMetadata metadata = reader.getImageMetadata(0);
+        if (metadata == null || !Arrays.asList(metadata.getMetadataFormatNames()).contains(JPEG_METADATA_FORMAT))
+            return 1;
+        Node markers = ((IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT)).getElementsByTagName("markerSequence").item(0);
+        for (Node marker = markers == null ? null : markers.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+            Node tag = marker.getAttributes() == null ? null : marker.getAttributes().getNamedItem("MarkerTag");
+            if (tag != null && APP1_MARKER.equals(tag.getNodeValue()) && ((IIOMetadataNode) marker).getUserObject() instanceof byte[] app1)
+                return exifOrientation(app1);
+        }
+        return 1;
+    }
+
+    private static int exifOrientation(byte[] app1) {
+        int tiff = EXIF_HEADER.length;
+        if (app1.length < tiff + 8 || !Arrays.equals(app1, 0, tiff, EXIF_HEADER, 0, tiff))
+            return 1;
+        ByteBuffer buffer = ByteBuffer.wrap(app1).order(app1[tiff] == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        long ifd = tiff + (buffer.getInt(tiff + 4) & 0xFFFFFFFFL);
+        if (ifd + 2 > app1.length)
+            return 1;
+        int entries = buffer.getShort((int) ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * IFD_ENTRY_LENGTH;
+            if (entry + IFD_ENTRY_LENGTH > app1.length)
+                break;
+            if ((buffer.getShort(entry) & 0xFFFF) == ORIENTATION_TAG) {
+                int orientation = buffer.getShort(entry + 8) & 0xFFFF;
+                return orientation >= 1 && orientation <= 8 ? orientation : 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Applies an EXIF orientation: 2 to 4 mirror or turn the image over, 5 to 8 also swap its width and height.
+     */
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1)
+            return image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean transposed = orientation >= 5;
+        BufferedImage oriented = new BufferedImage(transposed ? height : width, transposed ? width : height, BufferedImage.TYPE_INT_ARGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                switch (orientation) {
+                    case 2 -> oriented.setRGB(width - 1 - x, y, row[x]);
+                    case 3 -> oriented.setRGB(width - 1 - x, height - 1 - y, row[x]);
+                    case 4 -> oriented.setRGB(x, height - 1 - y, row[x]);
+                    case 5 -> oriented.setRGB(y, x, row[x]);
+                    case 6 -> oriented.setRGB(height - 1 - y, x, row[x]);
+                    case 7 -> oriented.setRGB(height - 1 - y, width - 1 - x, row[x]);
+                    default -> oriented.setRGB(y, width - 1 - x, row[x]);
+                }
+            }
+        }
+        return oriented;
+    }
+
+    private static BufferedImage flatten(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
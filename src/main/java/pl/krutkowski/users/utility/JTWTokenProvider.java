@@ -4,88 +4,87 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import jakarta.servlet.http.HttpServletRequest;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import pl.krutkowski.users.domain.PermissionAuthenticationToken;
 import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.domain.VerifiedToken;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
-import static java.util.Arrays.stream;
 import static pl.krutkowski.users.constant.SecurityConstant.*;
 
 @Component
 public class JTWTokenProvider {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final Cache<HashCode, VerifiedToken> verifiedTokenCache;
+    private final WebAuthenticationDetailsSource authenticationDetailsSource = new WebAuthenticationDetailsSource();
+
+    public JTWTokenProvider(@Value("${jwt.secret}") String secret) {
+        this.algorithm = Algorithm.HMAC512(secret.getBytes());
+        this.verifier = JWT.require(algorithm).withIssuer(K_RUTKOWSKI).build();
+        this.verifiedTokenCache = CacheBuilder.newBuilder()
+                .maximumSize(VERIFIED_TOKEN_CACHE_SIZE)
+                .expireAfterWrite(EXPIRATION_TIME, TimeUnit.MILLISECONDS)
+                .build();
+    }
 
     public String generateToken(UserPrinciple userPrinciple) {
-        String [] claims = getClaimsForUser(userPrinciple);
         return JWT.create().withIssuer(K_RUTKOWSKI).withAudience(CAR_APP)
                 .withIssuedAt(new Date()).withSubject(userPrinciple.getUsername())
-                .withArrayClaim(AUTHORITIES, claims).withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .sign(Algorithm.HMAC512(secret.getBytes()));
-
-    }
-
-    public List<GrantedAuthority> getAuthorities(String token) {
-        String [] claims = getClaimsFromToken(token);
-        return stream(claims).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
-    }
-
-    public Authentication getAuthentication(String userName, List<GrantedAuthority> authorities, HttpServletRequest request) {
-        UsernamePasswordAuthenticationToken userPasswordAuthToken =
-                new UsernamePasswordAuthenticationToken(userName, null, authorities);
-        userPasswordAuthToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-        return userPasswordAuthToken;
-    }
+                .withClaim(PERMISSIONS, userPrinciple.getPermissions()).withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
+                .sign(algorithm);
 
-    public boolean isTokenValid(String userName, String token) {
-        JWTVerifier verifier = getJWTVerier();
-        return StringUtils.isNotEmpty(userName) && !isTokenExpired(verifier, token);
     }
 
-    private boolean isTokenExpired(JWTVerifier verifier, String token) {
-        Date expiresAt = verifier.verify(token).getExpiresAt();
-        return expiresAt.before(new Date());
-    }
-
-    public String getSubject(String token) {
-        JWTVerifier verifier = getJWTVerier();
-        return verifier.verify(token).getSubject();
-    }
-
-    private String[] getClaimsForUser(UserPrinciple userPrinciple) {
-        List<String> authorities = new ArrayList<>();
-        for (GrantedAuthority authority : userPrinciple.getAuthorities()) {
-            authorities.add(authority.getAuthority());
+    /**
+     * Verifies the token once and caches the result under its SHA-256 digest until the token's own expiry.
+     * An expired cache entry falls through to the verifier, which rejects the token with the usual exception.
+     */
+    public VerifiedToken verifyToken(String token) {
+        HashCode digest = Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+        VerifiedToken cached = verifiedTokenCache.getIfPresent(digest);
+        if (cached != null) {
+            if (!cached.isExpired())
+                return cached;
+            verifiedTokenCache.invalidate(digest);
         }
-        return authorities.toArray(new String[0]);
+        VerifiedToken verifiedToken = decodeToken(token);
+        verifiedTokenCache.put(digest, verifiedToken);
+        return verifiedToken;
     }
 
-    private String[] getClaimsFromToken(String token) {
-        JWTVerifier verifier = getJWTVerier();
-        return verifier.verify(token).getClaim(AUTHORITIES).asArray(String.class);
+    public Authentication getAuthentication(VerifiedToken verifiedToken, HttpServletRequest request) {
+        PermissionAuthenticationToken permissionAuthToken =
+                new PermissionAuthenticationToken(verifiedToken.subject(), verifiedToken.permissions());
+        permissionAuthToken.setDetails(authenticationDetailsSource.buildDetails(request));
+        return permissionAuthToken;
     }
 
-    private JWTVerifier getJWTVerier() {
-        JWTVerifier verifier;
-        try {
-            Algorithm algorithm = Algorithm.HMAC512(secret.getBytes());
-            verifier = JWT.require(algorithm).withIssuer(K_RUTKOWSKI).build();
-        } catch (JWTVerificationException e) {
+    private VerifiedToken decodeToken(String token) {
+        DecodedJWT decodedJWT = verifier.verify(token);
+        if (decodedJWT.getExpiresAt() == null)
             throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
-        }
-        return verifier;
+        return new VerifiedToken(decodedJWT.getSubject(), getPermissionsFromToken(decodedJWT), decodedJWT.getExpiresAtAsInstant());
+    }
+
+    private int getPermissionsFromToken(DecodedJWT decodedJWT) {
+        Integer permissions = decodedJWT.getClaim(PERMISSIONS).asInt();
+        if (permissions != null)
+            return permissions;
+        // Tokens issued before permission masks still carry the authority names
+        return AuthorityRegistry.maskOf(decodedJWT.getClaim(AUTHORITIES).asArray(String.class));
     }
 }
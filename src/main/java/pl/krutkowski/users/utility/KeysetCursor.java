@@ -0,0 +1,34 @@
+package pl.krutkowski.users.utility;
+
+import pl.krutkowski.users.exception.domain.InvalidCursorException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import static pl.krutkowski.users.constant.UserConstant.INVALID_CURSOR;
+
+public final class KeysetCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(long id) {
+        return ENCODER.encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+
+    public static long decode(String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isEmpty())
+            return 0L;
+        try {
+            byte[] bytes = DECODER.decode(cursor);
+            if (bytes.length != Long.BYTES)
+                throw new InvalidCursorException(String.format(INVALID_CURSOR, cursor));
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(String.format(INVALID_CURSOR, cursor));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pl.krutkowski.users.utility;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import pl.krutkowski.users.domain.PermissionAuthenticationToken;
+import pl.krutkowski.users.enumeration.Permission;
+
+@Component("permissions")
+public class PermissionChecker {
+
+    public boolean has(Authentication authentication, String authority) {
+        if (authentication instanceof PermissionAuthenticationToken token)
+            return token.hasPermission(Permission.fromAuthority(authority));
+        if (authentication == null)
+            return false;
+        for (GrantedAuthority grantedAuthority : authentication.getAuthorities()) {
+            if (authority.equals(grantedAuthority.getAuthority()))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,236 @@
+package pl.krutkowski.users.utility;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Lower-cased keys packed as UTF-8 into one sorted byte array with an offset table, so a million keys cost their
+ * bytes plus four per key instead of a String and a byte[] each. Writes go to a small sorted delta of additions and
+ * tombstones that {@link #compact()} folds back into the packed array. Reads take no locks: they binary search the
+ * packed keys and merge the delta on the fly.
+ */
+public final class PrefixIndex {
+
+    private static final Comparator<byte[]> UNSIGNED = Arrays::compareUnsigned;
+
+    private volatile State state = new State(Packed.EMPTY, new ConcurrentSkipListMap<>(UNSIGNED));
+    private List<Map.Entry<byte[], Boolean>> rebuildLog;
+
+    public void add(String key) {
+        write(bytesOf(key), Boolean.TRUE);
+    }
+
+    public void remove(String key) {
+        write(bytesOf(key), Boolean.FALSE);
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        byte[] prefixBytes = bytesOf(prefix);
+        State current = state;
+        Packed packed = current.packed();
+        Iterator<Map.Entry<byte[], Boolean>> delta = current.delta().tailMap(prefixBytes).entrySet().iterator();
+        List<String> suggestions = new ArrayList<>(limit);
+        int index = packed.lowerBound(prefixBytes);
+        Map.Entry<byte[], Boolean> change = nextMatching(delta, prefixBytes);
+        while (suggestions.size() < limit) {
+            boolean hasPacked = index < packed.size() && packed.startsWith(index, prefixBytes);
+            if (!hasPacked && change == null)
+                break;
+            int comparison = !hasPacked ? 1 : change == null ? -1 : packed.compare(index, change.getKey());
+            if (comparison < 0) {
+                suggestions.add(packed.get(index++));
+            } else {
+                if (change.getValue())
+                    suggestions.add(new String(change.getKey(), StandardCharsets.UTF_8));
+                if (comparison == 0)
+                    index++;
+                change = nextMatching(delta, prefixBytes);
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Replaces the whole index with {@code keys}. Writes made while the keys are read are replayed on top,
+     * so a change committed after the source was queried is not lost.
+     */
+    public void rebuild(Stream<String> keys) {
+        synchronized (this) {
+            rebuildLog = new ArrayList<>();
+        }
+        List<byte[]> sorted;
+        try {
+            sorted = new ArrayList<>(keys.filter(Objects::nonNull).map(PrefixIndex::bytesOf).toList());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuildLog = null;
+            }
+            throw e;
+        }
+        sorted.sort(UNSIGNED);
+        Packed packed = Packed.of(sorted);
+        synchronized (this) {
+            ConcurrentSkipListMap<byte[], Boolean> delta = new ConcurrentSkipListMap<>(UNSIGNED);
+            for (Map.Entry<byte[], Boolean> change : rebuildLog)
+                delta.put(change.getKey(), change.getValue());
+            rebuildLog = null;
+            state = new State(packed, delta);
+        }
+    }
+
+    public synchronized void compact() {
+        State current = state;
+        if (current.delta().isEmpty())
+            return;
+        state = new State(current.packed().merge(current.delta()), new ConcurrentSkipListMap<>(UNSIGNED));
+    }
+
+    /**
+     * Keys currently in the index. Delta entries that re-add a packed key or remove an absent one do not count, so
+     * this walks the delta, which compaction keeps small.
+     */
+    public int size() {
+        State current = state;
+        Packed packed = current.packed();
+        int size = packed.size();
+        for (Map.Entry<byte[], Boolean> change : current.delta().entrySet()) {
+            boolean packedHasKey = packed.contains(change.getKey());
+            if (change.getValue() && !packedHasKey)
+                size++;
+            else if (!change.getValue() && packedHasKey)
+                size--;
+        }
+        return size;
+    }
+
+    public int pendingChanges() {
+        return state.delta().size();
+    }
+
+    /**
+     * Bytes held by the packed keys and offsets; the delta is bounded by the write rate between compactions.
+     */
+    public long packedBytes() {
+        return state.packed().bytes();
+    }
+
+    private synchronized void write(byte[] key, Boolean present) {
+        state.delta().put(key, present);
+        if (rebuildLog != null)
+            rebuildLog.add(Map.entry(key, present));
+    }
+
+    private static Map.Entry<byte[], Boolean> nextMatching(Iterator<Map.Entry<byte[], Boolean>> delta, byte[] prefix) {
+        if (!delta.hasNext())
+            return null;
+        Map.Entry<byte[], Boolean> change = delta.next();
+        byte[] key = change.getKey();
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length) ? change : null;
+    }
+
+    private static byte[] bytesOf(String key) {
+        return key.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record State(Packed packed, ConcurrentNavigableMap<byte[], Boolean> delta) {
+    }
+
+    private record Packed(byte[] data, int[] offsets) {
+
+        static final Packed EMPTY = new Packed(new byte[0], new int[1]);
+
+        static Packed of(List<byte[]> sortedKeys) {
+            int length = 0;
+            for (byte[] key : sortedKeys)
+                length += key.length;
+            byte[] data = new byte[length];
+            int[] offsets = new int[sortedKeys.size() + 1];
+            int count = 0;
+            byte[] previous = null;
+            for (byte[] key : sortedKeys) {
+                if (previous != null && Arrays.equals(previous, key))
+                    continue;
+                System.arraycopy(key, 0, data, offsets[count], key.length);
+                offsets[count + 1] = offsets[count] + key.length;
+                count++;
+                previous = key;
+            }
+            return new Packed(Arrays.copyOf(data, offsets[count]), Arrays.copyOf(offsets, count + 1));
+        }
+
+        int size() {
+            return offsets.length - 1;
+        }
+
+        long bytes() {
+            return data.length + (long) offsets.length * Integer.BYTES;
+        }
+
+        String get(int index) {
+            return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+        }
+
+        int compare(int index, byte[] key) {
+            return Arrays.compareUnsigned(data, offsets[index], offsets[index + 1], key, 0, key.length);
+        }
+
+        boolean startsWith(int index, byte[] prefix) {
+            int from = offsets[index];
+            return offsets[index + 1] - from >= prefix.length
+                    && Arrays.equals(data, from, from + prefix.length, prefix, 0, prefix.length);
+        }
+
+        boolean contains(byte[] key) {
+            int index = lowerBound(key);
+            return index < size() && compare(index, key) == 0;
+        }
+
+        int lowerBound(byte[] key) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(middle, key) < 0)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+
+        Packed merge(NavigableMap<byte[], Boolean> delta) {
+            int maxLength = data.length;
+            for (byte[] key : delta.keySet())
+                maxLength += key.length;
+            byte[] mergedData = new byte[maxLength];
+            int[] mergedOffsets = new int[size() + delta.size() + 1];
+            int count = 0;
+            Iterator<Map.Entry<byte[], Boolean>> changes = delta.entrySet().iterator();
+            Map.Entry<byte[], Boolean> change = changes.hasNext() ? changes.next() : null;
+            int index = 0;
+            while (index < size() || change != null) {
+                int comparison = index >= size() ? 1 : change == null ? -1 : compare(index, change.getKey());
+                int from = mergedOffsets[count];
+                if (comparison < 0) {
+                    int length = offsets[index + 1] - offsets[index];
+                    System.arraycopy(data, offsets[index], mergedData, from, length);
+                    mergedOffsets[++count] = from + length;
+                    index++;
+                } else {
+                    if (change.getValue()) {
+                        byte[] key = change.getKey();
+                        System.arraycopy(key, 0, mergedData, from, key.length);
+                        mergedOffsets[++count] = from + key.length;
+                    }
+                    if (comparison == 0)
+                        index++;
+                    change = changes.hasNext() ? changes.next() : null;
+                }
+            }
+            return new Packed(Arrays.copyOf(mergedData, mergedOffsets[count]), Arrays.copyOf(mergedOffsets, count + 1));
+        }
+    }
+}
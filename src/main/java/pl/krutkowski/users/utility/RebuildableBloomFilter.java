@@ -0,0 +1,87 @@
+package pl.krutkowski.users.utility;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Case-insensitive Bloom filter that is periodically replaced by a freshly sized one. Bloom filters cannot forget,
+ * so removed keys linger as false positives until the next rebuild. Keys are put before their transaction commits,
+ * so a rebuild may read its source without them; every key put since the rebuild before last is replayed into the
+ * new filter, so a rebuild never drops a key and a negative answer stays trustworthy.
+ */
+public final class RebuildableBloomFilter {
+
+    private final double falsePositiveRate;
+    private volatile BloomFilter<CharSequence> filter;
+    private volatile long bits;
+    private List<String> previousPuts = new ArrayList<>();
+    private List<String> recentPuts = new ArrayList<>();
+
+    public RebuildableBloomFilter(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    public boolean mightContain(String key) {
+        BloomFilter<CharSequence> current = filter;
+        return current == null || current.mightContain(keyOf(key));
+    }
+
+    public synchronized void put(String key) {
+        if (key == null)
+            return;
+        String normalizedKey = keyOf(key);
+        if (filter != null)
+            filter.put(normalizedKey);
+        recentPuts.add(normalizedKey);
+    }
+
+    public void rebuild(Stream<String> keys, long expectedInsertions) {
+        BloomFilter<CharSequence> rebuilt = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                expectedInsertions, falsePositiveRate);
+        keys.filter(Objects::nonNull).map(RebuildableBloomFilter::keyOf).forEach(rebuilt::put);
+        synchronized (this) {
+            previousPuts.forEach(rebuilt::put);
+            recentPuts.forEach(rebuilt::put);
+            previousPuts = recentPuts;
+            recentPuts = new ArrayList<>();
+            filter = rebuilt;
+            bits = optimalBits(expectedInsertions, falsePositiveRate);
+        }
+    }
+
+    public double expectedFpp() {
+        BloomFilter<CharSequence> current = filter;
+        return current == null ? 0 : current.expectedFpp();
+    }
+
+    public long approximateElementCount() {
+        BloomFilter<CharSequence> current = filter;
+        return current == null ? 0 : current.approximateElementCount();
+    }
+
+    /**
+     * Size of the bit array, using the same formula Guava sizes it with.
+     */
+    public long bits() {
+        return bits;
+    }
+
+    private static long optimalBits(long expectedInsertions, double falsePositiveRate) {
+        return (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    }
+
+    private static String keyOf(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+}
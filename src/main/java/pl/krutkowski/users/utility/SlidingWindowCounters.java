@@ -0,0 +1,174 @@
+package pl.krutkowski.users.utility;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free per-key event counters over a sliding time window.
+ * Every key owns a small ring of buckets; each bucket packs its bucket number and its count into one long,
+ * so an increment is a single CAS and a bucket from a previous lap of the ring is recognised and reset in place.
+ * <p>
+ * Past maximumSize a new key evicts an old one, clock style: windows are queued oldest first, and one counted again
+ * since it was last looked at goes back to the tail instead of being evicted. A window at protectedCount or more is passed
+ * over as well, so flooding the map with other keys cannot reset it, and a window whose events have all left the window
+ * is evicted even if it was counted again. Protected windows may take the map a tenth past maximumSize; beyond that the
+ * oldest window goes whatever its count, so a spray of protectedCount events per random key cannot grow the map
+ * without bound. Each eviction looks at a bounded number of windows, so no request scans the map.
+ * <p>
+ * With five buckets an entry is roughly 150 bytes: the boxed key, the map node, the window, its bucket array and its
+ * queue node.
+ */
+public class SlidingWindowCounters {
+
+    private static final VarHandle BUCKETS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int MAX_EVICTION_PROBES = 16;
+
+    private final ConcurrentHashMap<Long, Window> windows = new ConcurrentHashMap<>();
+    private final Queue<Window> evictionQueue = new ConcurrentLinkedQueue<>();
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int maximumSize;
+    private final int hardLimit;
+    private final int protectedCount;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SlidingWindowCounters(Duration window, int bucketCount, int maximumSize, int protectedCount) {
+        this.bucketMillis = Math.max(1, window.toMillis() / bucketCount);
+        this.bucketCount = bucketCount;
+        this.maximumSize = maximumSize;
+        this.hardLimit = maximumSize + Math.max(1, maximumSize / 10);
+        this.protectedCount = protectedCount;
+    }
+
+    public int increment(long key, long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        int index = (int) (bucket % bucketCount);
+        for (;;) {
+            Window window = windows.get(key);
+            boolean hit = window != null;
+            if (!hit) {
+                misses.increment();
+                int size = windows.size();
+                if (size >= maximumSize)
+                    evict(bucket, size >= hardLimit);
+                window = windows.computeIfAbsent(key, this::newWindow);
+            } else {
+                hits.increment();
+            }
+            long[] buckets = window.buckets;
+            long current;
+            long next;
+            do {
+                current = (long) BUCKETS.getVolatile(buckets, index);
+                next = current >>> COUNT_BITS == bucket
+                        ? Math.min(current + 1, (bucket << COUNT_BITS) | COUNT_MASK)
+                        : (bucket << COUNT_BITS) | 1;
+            } while (!BUCKETS.compareAndSet(buckets, index, current, next));
+            if (hit && !window.referenced)
+                window.referenced = true;
+            // A concurrent reset, sweep or eviction may have detached this window; count the event again in the live one
+            if (windows.get(key) == window)
+                return sum(buckets, bucket);
+        }
+    }
+
+    public int get(long key, long nowMillis) {
+        Window window = windows.get(key);
+        if (window == null) {
+            misses.increment();
+            return 0;
+        }
+        hits.increment();
+        return sum(window.buckets, nowMillis / bucketMillis);
+    }
+
+    public void reset(long key) {
+        windows.remove(key);
+    }
+
+    /**
+     * Drops windows with nothing left in them, and queue entries of windows that are gone.
+     */
+    public void removeExpired(long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        for (Window window : windows.values()) {
+            if (sum(window.buckets, bucket) == 0 && windows.remove(window.key, window))
+                evictions.increment();
+        }
+        evictionQueue.removeIf(window -> windows.get(window.key) != window);
+    }
+
+    public long size() {
+        return windows.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Window newWindow(long key) {
+        Window window = new Window(key, new long[bucketCount]);
+        evictionQueue.offer(window);
+        return window;
+    }
+
+    private void evict(long currentBucket, boolean overHardLimit) {
+        for (int probe = 0; probe < MAX_EVICTION_PROBES; probe++) {
+            Window window = evictionQueue.poll();
+            if (window == null)
+                return;
+            if (windows.get(window.key) != window)
+                continue;
+            int sum = sum(window.buckets, currentBucket);
+            if (sum > 0 && !overHardLimit && (window.referenced || sum >= protectedCount)) {
+                window.referenced = false;
+                evictionQueue.offer(window);
+                continue;
+            }
+            if (windows.remove(window.key, window)) {
+                evictions.increment();
+                return;
+            }
+        }
+    }
+
+    private int sum(long[] buckets, long currentBucket) {
+        int total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            long packed = (long) BUCKETS.getVolatile(buckets, i);
+            if (currentBucket - (packed >>> COUNT_BITS) < bucketCount)
+                total += (int) (packed & COUNT_MASK);
+        }
+        return total;
+    }
+
+    private static final class Window {
+
+        private final long key;
+        private final long[] buckets;
+        // Set when a key is counted again and cleared when eviction passes the window over
+        private volatile boolean referenced;
+
+        private Window(long key, long[] buckets) {
+            this.key = key;
+            this.buckets = buckets;
+        }
+    }
+}
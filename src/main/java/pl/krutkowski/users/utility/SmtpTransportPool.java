@@ -0,0 +1,160 @@
+package pl.krutkowski.users.utility;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A few long-lived, authenticated SMTP connections over one shared {@link Session}, each sending many messages,
+ * so the TLS handshake and login are paid once per connection instead of once per email. A connection that sat
+ * idle is checked with a NOOP before reuse, one that fails is closed and replaced on the next send, and every
+ * connection is recycled after a number of messages to stay within provider limits.
+ */
+@Slf4j
+public final class SmtpTransportPool implements AutoCloseable {
+
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int maxMessagesPerConnection;
+    private final long validateAfterIdleNanos;
+    private final Semaphore leases;
+    private final ConcurrentLinkedDeque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger open = new AtomicInteger();
+    private volatile MessagingException lastConnectFailure;
+
+    public SmtpTransportPool(Session session, String protocol, String host, int port, String username, String password,
+                             int size, int maxMessagesPerConnection, Duration validateAfterIdle) {
+        this.session = session;
+        this.protocol = protocol;
+        this.host = host;
+        this.port = port;
+        // Without credentials JavaMail must not attempt AUTH at all, which it does for an empty user name
+        boolean anonymous = username == null || username.isBlank();
+        this.username = anonymous ? null : username;
+        this.password = anonymous ? null : password;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.validateAfterIdleNanos = validateAfterIdle.toNanos();
+        this.leases = new Semaphore(size, true);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public void send(Message message) throws MessagingException {
+        try {
+            leases.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        PooledTransport pooled = null;
+        try {
+            pooled = borrow();
+            pooled.transport.sendMessage(message, message.getAllRecipients());
+            pooled.messages++;
+            release(pooled);
+        } catch (MessagingException | RuntimeException e) {
+            // A rejected recipient leaves the connection usable; anything else gets a fresh connection next time
+            if (pooled != null && pooled.transport.isConnected())
+                release(pooled);
+            else if (pooled != null)
+                discard(pooled);
+            throw e;
+        } finally {
+            leases.release();
+        }
+    }
+
+    /**
+     * Up unless the last attempt to open a connection failed.
+     */
+    public boolean isHealthy() {
+        return lastConnectFailure == null;
+    }
+
+    public MessagingException getLastConnectFailure() {
+        return lastConnectFailure;
+    }
+
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null)
+            discard(pooled);
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            boolean stale = System.nanoTime() - pooled.idleSince > validateAfterIdleNanos;
+            if (!stale || pooled.transport.isConnected())
+                return pooled;
+            log.debug("Dropping SMTP connection that went away while idle");
+            discard(pooled);
+        }
+        return connect();
+    }
+
+    private void release(PooledTransport pooled) {
+        if (pooled.messages >= maxMessagesPerConnection) {
+            discard(pooled);
+            return;
+        }
+        pooled.idleSince = System.nanoTime();
+        // Most recently used first, so surplus connections go idle and are the ones the server times out
+        idle.offerFirst(pooled);
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        Transport transport = session.getTransport(protocol);
+        try {
+            transport.connect(host, port, username, password);
+        } catch (MessagingException e) {
+            lastConnectFailure = e;
+            throw e;
+        }
+        lastConnectFailure = null;
+        open.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    private void discard(PooledTransport pooled) {
+        open.decrementAndGet();
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection cleanly: {}", e.getMessage());
+        }
+    }
+
+    private static final class PooledTransport {
+
+        private final Transport transport;
+        private int messages;
+        private long idleSince = System.nanoTime();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
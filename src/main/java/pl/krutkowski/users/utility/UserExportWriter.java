@@ -0,0 +1,93 @@
+package pl.krutkowski.users.utility;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.enumeration.ExportFormat;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Component
+public class UserExportWriter {
+
+    private static final String[] CSV_HEADER = {"userId", "firstName", "lastName", "username", "email", "role",
+            "active", "notLocked", "joinDate", "lastLoginDate", "profileImageUrl"};
+    private static final char CSV_SEPARATOR = ',';
+    private static final char CSV_QUOTE = '"';
+    private static final char LINE_SEPARATOR = '\n';
+
+    private final ObjectWriter userWriter;
+
+    public UserExportWriter(ObjectMapper objectMapper) {
+        this.userWriter = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public long write(Stream<User> users, ExportFormat format, OutputStream outputStream) throws IOException {
+        return switch (format) {
+            case NDJSON -> writeNdjson(users.iterator(), outputStream);
+            case CSV -> writeCsv(users.iterator(), outputStream);
+        };
+    }
+
+    private long writeNdjson(Iterator<User> users, OutputStream outputStream) throws IOException {
+        long rows = 0;
+        try (JsonGenerator generator = userWriter.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (users.hasNext()) {
+                userWriter.writeValue(generator, users.next());
+                generator.writeRaw(LINE_SEPARATOR);
+                // Push the first row out immediately so clients see the export start without waiting for a full buffer
+                if (++rows == 1)
+                    generator.flush();
+            }
+        }
+        return rows;
+    }
+
+    private long writeCsv(Iterator<User> users, OutputStream outputStream) throws IOException {
+        long rows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writeCsvRow(writer, (Object[]) CSV_HEADER);
+        writer.flush();
+        while (users.hasNext()) {
+            User user = users.next();
+            writeCsvRow(writer, user.getUserId(), user.getFirstName(), user.getLastName(), user.getUsername(),
+                    user.getEmail(), user.getRole(), user.isActive(), user.isNotLocked(), user.getJoinDate(),
+                    user.getLastLoginDate(), user.getProfileImageUrl());
+            if (++rows == 1)
+                writer.flush();
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private void writeCsvRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                writer.write(CSV_SEPARATOR);
+            writeCsvValue(writer, values[i]);
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    private void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null)
+            return;
+        String text = value instanceof Date date ? date.toInstant().toString() : value.toString();
+        if (text.indexOf(CSV_SEPARATOR) < 0 && text.indexOf(CSV_QUOTE) < 0 && text.indexOf(LINE_SEPARATOR) < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write(CSV_QUOTE);
+        writer.write(text.replace("\"", "\"\""));
+        writer.write(CSV_QUOTE);
+    }
+}
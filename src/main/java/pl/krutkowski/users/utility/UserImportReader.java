@@ -0,0 +1,125 @@
+package pl.krutkowski.users.utility;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import pl.krutkowski.users.domain.UserImportRow;
+import pl.krutkowski.users.enumeration.ExportFormat;
+import pl.krutkowski.users.exception.domain.InvalidImportFileException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static pl.krutkowski.users.constant.UserConstant.*;
+
+/**
+ * Reads the same NDJSON and CSV layouts {@link UserExportWriter} produces; unknown fields and columns are ignored.
+ */
+@Component
+public class UserImportReader {
+
+    private static final char CSV_SEPARATOR = ',';
+    private static final char CSV_QUOTE = '"';
+    private static final char LINE_SEPARATOR = '\n';
+    private static final char CARRIAGE_RETURN = '\r';
+
+    private final ObjectReader rowReader;
+
+    public UserImportReader(ObjectMapper objectMapper) {
+        this.rowReader = objectMapper.readerFor(UserImportRow.class).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public List<UserImportRow> read(InputStream inputStream, ExportFormat format) throws IOException, InvalidImportFileException {
+        List<UserImportRow> rows = switch (format) {
+            case NDJSON -> readNdjson(inputStream);
+            case CSV -> readCsv(new PushbackReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))));
+        };
+        if (rows.size() > MAX_IMPORT_ROWS)
+            throw new InvalidImportFileException(String.format(IMPORT_TOO_LARGE, MAX_IMPORT_ROWS));
+        return rows;
+    }
+
+    private List<UserImportRow> readNdjson(InputStream inputStream) throws IOException, InvalidImportFileException {
+        List<UserImportRow> rows = new ArrayList<>();
+        try (MappingIterator<UserImportRow> iterator = rowReader.readValues(inputStream)) {
+            while (iterator.hasNextValue() && rows.size() <= MAX_IMPORT_ROWS)
+                rows.add(iterator.nextValue());
+        } catch (JacksonException e) {
+            throw new InvalidImportFileException(String.format(INVALID_IMPORT_ROW, rows.size() + 1));
+        }
+        return rows;
+    }
+
+    private List<UserImportRow> readCsv(PushbackReader reader) throws IOException, InvalidImportFileException {
+        List<String> header = readCsvRecord(reader);
+        if (header == null)
+            return List.of();
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++)
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        if (!columns.containsKey("username") || !columns.containsKey("email"))
+            throw new InvalidImportFileException(IMPORT_MISSING_COLUMNS);
+
+        List<UserImportRow> rows = new ArrayList<>();
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null && rows.size() <= MAX_IMPORT_ROWS) {
+            if (record.size() == 1 && record.get(0).isEmpty())
+                continue;
+            String active = column(record, columns, "active");
+            String notLocked = column(record, columns, "notlocked");
+            rows.add(new UserImportRow(column(record, columns, "firstname"), column(record, columns, "lastname"),
+                    column(record, columns, "username"), column(record, columns, "email"), column(record, columns, "role"),
+                    active == null ? null : Boolean.valueOf(active), notLocked == null ? null : Boolean.valueOf(notLocked)));
+        }
+        return rows;
+    }
+
+    private String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size())
+            return null;
+        return StringUtils.trimToNull(record.get(index));
+    }
+
+    private List<String> readCsvRecord(PushbackReader reader) throws IOException, InvalidImportFileException {
+        int c = reader.read();
+        if (c == -1)
+            return null;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (;; c = reader.read()) {
+            if (quoted) {
+                if (c == -1)
+                    throw new InvalidImportFileException(IMPORT_UNTERMINATED_QUOTE);
+                if (c == CSV_QUOTE) {
+                    int next = reader.read();
+                    if (next == CSV_QUOTE) {
+                        field.append(CSV_QUOTE);
+                    } else {
+                        quoted = false;
+                        if (next != -1)
+                            reader.unread(next);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == CSV_QUOTE) {
+                quoted = true;
+            } else if (c == CSV_SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == LINE_SEPARATOR || c == -1) {
+                fields.add(field.toString());
+                return fields;
+            } else if (c != CARRIAGE_RETURN) {
+                field.append((char) c);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+CREATE SEQUENCE IF NOT EXISTS users_app_table_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users_app_table (
+    id                      BIGINT       NOT NULL PRIMARY KEY,
+    user_id                 VARCHAR(255),
+    first_name              VARCHAR(255),
+    last_name               VARCHAR(255),
+    username                VARCHAR(255),
+    password                VARCHAR(255),
+    email                   VARCHAR(255),
+    profile_image_url       VARCHAR(255),
+    last_login_date         TIMESTAMP(6),
+    last_login_date_display TIMESTAMP(6),
+    join_date               TIMESTAMP(6),
+    role                    VARCHAR(255),
+    authorities             VARCHAR(255) ARRAY,
+    is_active               BOOLEAN      NOT NULL,
+    is_not_locked           BOOLEAN      NOT NULL
+);
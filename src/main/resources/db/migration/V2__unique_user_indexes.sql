@@ -0,0 +1,3 @@
+CREATE UNIQUE INDEX ux_users_app_table_username ON users_app_table (lower(username));
+CREATE UNIQUE INDEX ux_users_app_table_email ON users_app_table (lower(email));
+CREATE UNIQUE INDEX ux_users_app_table_user_id ON users_app_table (lower(user_id));
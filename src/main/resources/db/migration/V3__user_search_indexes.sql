@@ -0,0 +1,8 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX ix_users_app_table_username_prefix ON users_app_table (lower(username) text_pattern_ops);
+CREATE INDEX ix_users_app_table_username_trgm ON users_app_table USING gin (lower(username) gin_trgm_ops);
+CREATE INDEX ix_users_app_table_email_trgm ON users_app_table USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX ix_users_app_table_first_name_trgm ON users_app_table USING gin (lower(first_name) gin_trgm_ops);
+CREATE INDEX ix_users_app_table_last_name_trgm ON users_app_table USING gin (lower(last_name) gin_trgm_ops);
+CREATE INDEX ix_users_app_table_role_id ON users_app_table (role, id);
@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS user_login_history (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username   VARCHAR(255) NOT NULL,
+    login_date TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_user_login_history_username_date ON user_login_history (username, login_date);
@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS login_attempt (
+    username     VARCHAR(255) PRIMARY KEY,
+    attempts     INTEGER      NOT NULL,
+    window_start TIMESTAMP    NOT NULL
+);
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS ix_users_app_table_email_prefix ON users_app_table (lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS ix_users_app_table_first_name_prefix ON users_app_table (lower(first_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS ix_users_app_table_last_name_prefix ON users_app_table (lower(last_name) text_pattern_ops);
@@ -0,0 +1,50 @@
+package pl.krutkowski.users.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uses the primary database as its own replica under a second pool; the pools tell themselves apart by their
+ * application_name.
+ */
+@SpringBootTest(properties = "replica-datasource.url=${spring.datasource.url}")
+class ReadOnlyRoutingTests {
+
+    private static final String APPLICATION_NAME_SQL = "SELECT current_setting('application_name')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readOnlyTransactionUsesReplica() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        String applicationName = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(APPLICATION_NAME_SQL, String.class));
+
+        assertThat(applicationName).isEqualTo("users-replica");
+    }
+
+    @Test
+    void readWriteTransactionUsesPrimary() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        String applicationName = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(APPLICATION_NAME_SQL, String.class));
+
+        assertThat(applicationName).isEqualTo("users-primary");
+    }
+
+    @Test
+    void workOutsideTransactionUsesPrimary() {
+        assertThat(jdbcTemplate.queryForObject(APPLICATION_NAME_SQL, String.class)).isEqualTo("users-primary");
+    }
+}
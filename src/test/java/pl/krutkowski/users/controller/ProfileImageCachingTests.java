@@ -0,0 +1,130 @@
+package pl.krutkowski.users.controller;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+import pl.krutkowski.users.service.ProfileImageProcessor;
+import pl.krutkowski.users.utility.ImageFiles;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.http.HttpHeaders.*;
+import static org.springframework.http.MediaType.IMAGE_JPEG;
+import static org.springframework.http.MediaType.IMAGE_PNG;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pl.krutkowski.users.constant.FileConstant.USER_FOLDER;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProfileImageCachingTests {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProfileImageProcessor profileImageProcessor;
+
+    private String username;
+    private Path folder;
+    private Path original;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        username = "image" + RandomStringUtils.randomNumeric(8);
+        folder = Files.createDirectories(Paths.get(USER_FOLDER + username));
+        original = folder.resolve(username + ".jpg");
+        ImageIO.write(new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+        profileImageProcessor.process(original).get(10, TimeUnit.SECONDS);
+        url = "/api/v1/user/image/" + username + "/" + username + ".jpg";
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        FileSystemUtils.deleteRecursively(folder);
+    }
+
+    @Test
+    void servesVariantWithValidators() throws Exception {
+        byte[] body = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(IMAGE_JPEG))
+                .andExpect(header().exists(ETAG))
+                .andExpect(header().exists(LAST_MODIFIED))
+                .andExpect(header().string(CACHE_CONTROL, containsString("no-cache")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(body).isNotEqualTo(Files.readAllBytes(original));
+        assertThat(ImageIO.read(new ByteArrayInputStream(body))).isNotNull();
+    }
+
+    @Test
+    void answersConditionalGetWithNotModified() throws Exception {
+        String eTag = mockMvc.perform(get(url)).andReturn().getResponse().getHeader(ETAG);
+
+        mockMvc.perform(get(url).header(IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void servesByteRanges() throws Exception {
+        mockMvc.perform(get(url).header(RANGE, "bytes=0-1"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(new byte[]{(byte) 0xFF, (byte) 0xD8}));
+    }
+
+    @Test
+    void cachesVersionedUrlForAYear() throws Exception {
+        String version = ImageFiles.version(original);
+
+        mockMvc.perform(get(url).param(ImageFiles.VERSION_PARAMETER, version))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CACHE_CONTROL, containsString("immutable")));
+    }
+
+    @Test
+    void servesPlaceholderInsteadOfUploadWithoutVariants() throws Exception {
+        Path undecodable = folder.resolve("broken.jpg");
+        Files.write(undecodable, PNG);
+
+        byte[] body = mockMvc.perform(get("/api/v1/user/image/" + username + "/broken.jpg"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(IMAGE_PNG))
+                .andExpect(header().string(CACHE_CONTROL, containsString("no-store")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(body).isNotEqualTo(PNG);
+    }
+
+    @Test
+    void answersMissingImageWithNotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/user/image/" + username + "/missing.jpg"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void refusesPathsOutsideUserFolder() throws Exception {
+        mockMvc.perform(get("/api/v1/user/image/" + username + "/..%2F..%2Fsecret"))
+                .andExpect(status().is4xxClientError());
+    }
+}
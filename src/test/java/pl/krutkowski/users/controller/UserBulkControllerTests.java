@@ -0,0 +1,117 @@
+package pl.krutkowski.users.controller;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+import pl.krutkowski.users.enumeration.SuggestField;
+import pl.krutkowski.users.service.UserSuggestService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pl.krutkowski.users.constant.FileConstant.USER_FOLDER;
+
+/**
+ * The filter picks inactive, locked HR users, which no other test creates.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = {"user:update", "user:delete"})
+class UserBulkControllerTests {
+
+    private static final String FILTER = """
+            {"filter": {"role": "ROLE_HR", "active": false, "notLocked": false}}""";
+    private static final String INSERT_USER_SQL = """
+            INSERT INTO users_app_table (id, user_id, username, email, join_date, role, is_active, is_not_locked)
+            VALUES (?, ?, ?, ?, now(), 'ROLE_HR', false, ?)""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserSuggestService userSuggestService;
+
+    private String prefix;
+    private List<String> matching;
+    private String notMatching;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        prefix = "bulk" + RandomStringUtils.randomNumeric(6);
+        matching = List.of(prefix + "a", prefix + "b");
+        notMatching = prefix + "c";
+        long id = -100;
+        for (String username : matching)
+            insert(id--, username, false);
+        insert(id, notMatching, true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        jdbcTemplate.update("DELETE FROM users_app_table WHERE username LIKE ?", prefix + "%");
+        for (String username : List.of(prefix + "a", prefix + "b", prefix + "c"))
+            FileSystemUtils.deleteRecursively(userFolder(username));
+    }
+
+    @Test
+    void deletesUsersMatchingFilterAndRemovesTheirFolders() throws Exception {
+        mockMvc.perform(post("/api/v1/user/bulk/delete").contentType(APPLICATION_JSON).content(FILTER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("2 USERS DELETED"));
+
+        assertThat(jdbcTemplate.queryForList("SELECT username FROM users_app_table WHERE username LIKE ?", String.class, prefix + "%"))
+                .containsExactly(notMatching);
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(matching).allSatisfy(username -> assertThat(userFolder(username)).doesNotExist()));
+        assertThat(userFolder(notMatching)).exists();
+    }
+
+    @Test
+    void removesDeletedUsersFromSuggestions() throws Exception {
+        for (String username : List.of(prefix + "a", prefix + "b", prefix + "c"))
+            userSuggestService.added(username, username + "@example.com");
+
+        mockMvc.perform(post("/api/v1/user/bulk/delete").contentType(APPLICATION_JSON).content(FILTER))
+                .andExpect(status().isOk());
+
+        assertThat(userSuggestService.suggest(SuggestField.USERNAME, prefix, 10)).containsExactly(notMatching);
+        assertThat(userSuggestService.suggest(SuggestField.EMAIL, prefix, 10)).containsExactly(notMatching + "@example.com");
+    }
+
+    @Test
+    void rejectsUnknownAction() throws Exception {
+        mockMvc.perform(post("/api/v1/user/bulk/explode").contentType(APPLICATION_JSON).content(FILTER))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("UNKNOWN BULK ACTION explode")));
+    }
+
+    private void insert(long id, String username, boolean notLocked) throws Exception {
+        jdbcTemplate.update(INSERT_USER_SQL, id, String.valueOf(id), username, username + "@example.com", notLocked);
+        Files.write(Files.createDirectories(userFolder(username)).resolve(username + ".jpg"), new byte[]{1});
+    }
+
+    private static Path userFolder(String username) {
+        return Paths.get(USER_FOLDER + username);
+    }
+}
@@ -0,0 +1,65 @@
+package pl.krutkowski.users.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = "user:read")
+class UserExportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser(authorities = "user:update")
+    void refusesCallerWithoutReadPermission() throws Exception {
+        mockMvc.perform(get("/api/v1/user/export"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void rejectsUnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/v1/user/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("UNSUPPORTED FORMAT xml")));
+    }
+
+    @Test
+    void compressesWhenClientAcceptsGzip() throws Exception {
+        var result = mockMvc.perform(get("/api/v1/user/export").header(ACCEPT_ENCODING, "deflate, gzip;q=0.5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(VARY, containsString(ACCEPT_ENCODING)));
+    }
+
+    @Test
+    void sendsIdentityWhenGzipIsRefused() throws Exception {
+        var result = mockMvc.perform(get("/api/v1/user/export").header(ACCEPT_ENCODING, "*, gzip;q=0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(CONTENT_ENCODING));
+    }
+}
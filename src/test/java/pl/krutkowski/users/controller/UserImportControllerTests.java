@@ -0,0 +1,93 @@
+package pl.krutkowski.users.controller;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pl.krutkowski.users.constant.UserConstant.IMPORT_CHUNK_SIZE;
+
+/**
+ * Imports a file spanning two chunks with duplicates inside a chunk, across the chunk boundary and against a user
+ * already in the database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = "user:create")
+class UserImportControllerTests {
+
+    private static final int ROWS = IMPORT_CHUNK_SIZE + 100;
+    private static final int EXISTING_ROW = 2;
+    private static final int SAME_CHUNK_DUPLICATE_ROW = 4;
+    private static final int NEXT_CHUNK_DUPLICATE_ROW = IMPORT_CHUNK_SIZE + 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "imp" + RandomStringUtils.randomNumeric(6) + "_";
+        jdbcTemplate.update("""
+                INSERT INTO users_app_table (id, user_id, username, email, join_date, role, is_active, is_not_locked)
+                VALUES (-1, '-1', ?, ?, now(), 'ROLE_USER', true, true)""", prefix + "existing", prefix + "existing@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users_app_table WHERE username LIKE ?", prefix + "%");
+        jdbcTemplate.update("DELETE FROM email_outbox WHERE recipient LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void importsChunkByChunkAndReportsDuplicates() throws Exception {
+        StringBuilder csv = new StringBuilder("firstName,lastName,username,email\n");
+        for (int row = 1; row <= ROWS; row++) {
+            String username = prefix + row;
+            String email = prefix + row + "@example.com";
+            if (row == EXISTING_ROW)
+                username = (prefix + "EXISTING").toUpperCase();
+            else if (row == SAME_CHUNK_DUPLICATE_ROW)
+                username = prefix + 1;
+            else if (row == NEXT_CHUNK_DUPLICATE_ROW)
+                email = (prefix + 3 + "@EXAMPLE.COM");
+            csv.append("First,Last,").append(username).append(',').append(email).append('\n');
+        }
+        MockMultipartFile file = new MockMultipartFile("file", "users.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(multipart("/api/v1/user/import").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(ROWS - 3))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.rows[%d].status", EXISTING_ROW - 1).value("DUPLICATE"))
+                .andExpect(jsonPath("$.rows[%d].status", SAME_CHUNK_DUPLICATE_ROW - 1).value("DUPLICATE"))
+                .andExpect(jsonPath("$.rows[%d].status", NEXT_CHUNK_DUPLICATE_ROW - 1).value("DUPLICATE"))
+                .andExpect(jsonPath("$.rows[%d].status", ROWS - 1).value("CREATED"));
+    }
+
+    @Test
+    void rejectsUnknownFormat() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "users.xml", "application/xml", new byte[0]);
+
+        mockMvc.perform(multipart("/api/v1/user/import").file(file).param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("UNSUPPORTED FORMAT xml")));
+    }
+}
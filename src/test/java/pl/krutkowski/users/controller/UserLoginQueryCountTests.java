@@ -0,0 +1,84 @@
+package pl.krutkowski.users.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.repository.UserRepository;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pl.krutkowski.users.constant.SecurityConstant.JWT_TOKEN_HEADER;
+import static pl.krutkowski.users.enumeration.Role.ROLE_USER;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class UserLoginQueryCountTests {
+
+    private static final String PASSWORD = "Sup3rSecret";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "login" + RandomStringUtils.randomNumeric(8);
+        user = new User();
+        user.setUserId(RandomStringUtils.randomNumeric(10));
+        user.setFirstName("Login");
+        user.setLastName("Test");
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setJoinDate(new Date());
+        user.setActive(true);
+        user.setNotLocked(true);
+        user.setRole(ROLE_USER.name());
+        user.setAuthorities(ROLE_USER.getAuthorities());
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.delete(user);
+    }
+
+    @Test
+    void loginIssuesSingleQuery() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(post("/api/v1/user/login")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"username\":\"" + user.getUsername() + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(JWT_TOKEN_HEADER));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,91 @@
+package pl.krutkowski.users.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.krutkowski.users.utility.KeysetCursor;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The users sit at the very top of the id range and are paged from just below them, so no other rows interfere.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = "user:read")
+class UserPageControllerTests {
+
+    private static final long FIRST_ID = Long.MAX_VALUE - 10;
+    private static final String INSERT_USER_SQL = """
+            INSERT INTO users_app_table (id, user_id, username, email, join_date, role, is_active, is_not_locked)
+            VALUES (?, ?, ?, ?, now(), 'ROLE_HR', ?, true)""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "page" + RandomStringUtils.randomNumeric(6);
+        insert(FIRST_ID, prefix + "a", false);
+        insert(FIRST_ID + 1, prefix + "b", true);
+        insert(FIRST_ID + 2, prefix + "c", false);
+        insert(FIRST_ID + 3, prefix + "d", false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users_app_table WHERE username LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void pagesFilteredUsersUntilTheLastPage() throws Exception {
+        String body = mockMvc.perform(get("/api/v1/user/page").param("cursor", KeysetCursor.encode(FIRST_ID - 1))
+                        .param("size", "2").param("role", "role_hr").param("active", "false").param("fields", "username"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[*].username", contains(prefix + "a", prefix + "c")))
+                .andReturn().getResponse().getContentAsString();
+        String nextCursor = JsonPath.read(body, "$.nextCursor");
+
+        mockMvc.perform(get("/api/v1/user/page").param("cursor", nextCursor)
+                        .param("size", "2").param("role", "role_hr").param("active", "false").param("fields", "username"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[*].username", contains(prefix + "d")))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    void rejectsMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/user/page").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("INVALID PAGE CURSOR")));
+    }
+
+    @Test
+    void rejectsUnknownRole() throws Exception {
+        mockMvc.perform(get("/api/v1/user/page").param("role", "bogus"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("INVALID ROLE bogus")));
+    }
+
+    private void insert(long id, String username, boolean active) {
+        jdbcTemplate.update(INSERT_USER_SQL, id, "ID" + id, username, username + "@example.com", active);
+    }
+}
@@ -0,0 +1,102 @@
+package pl.krutkowski.users.controller;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.service.EmailService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserRegistrationConcurrencyTests {
+
+    private static final int CONCURRENT_REQUESTS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    private final List<String> usernames = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (String username : usernames) {
+            User user = userRepository.findUserByUsername(username);
+            if (user != null)
+                userRepository.delete(user);
+        }
+    }
+
+    @Test
+    void concurrentRegistrationsOfTheSameUsernameAreRejected() throws Exception {
+        String username = "race" + RandomStringUtils.randomNumeric(8);
+        usernames.add(username);
+
+        List<Integer> statuses = registerConcurrently(i -> registration(i % 2 == 0 ? username : username.toUpperCase(),
+                username + i + "@example.com"));
+
+        assertThat(statuses).containsOnly(200, 400);
+        assertThat(statuses).filteredOn(status -> status == 200).hasSize(1);
+    }
+
+    @Test
+    void concurrentRegistrationsOfTheSameEmailAreRejected() throws Exception {
+        String email = "race" + RandomStringUtils.randomNumeric(8) + "@example.com";
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++)
+            candidates.add("race" + RandomStringUtils.randomNumeric(8) + i);
+        usernames.addAll(candidates);
+
+        List<Integer> statuses = registerConcurrently(i -> registration(candidates.get(i), email));
+
+        assertThat(statuses).containsOnly(200, 400);
+        assertThat(statuses).filteredOn(status -> status == 200).hasSize(1);
+    }
+
+    private List<Integer> registerConcurrently(IntFunction<String> body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                String content = body.apply(i);
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/v1/user/register").contentType(APPLICATION_JSON).content(content))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> response : responses)
+                statuses.add(response.get(30, TimeUnit.SECONDS));
+            return statuses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String registration(String username, String email) {
+        return "{\"firstName\":\"Race\",\"lastName\":\"Test\",\"username\":\"" + username + "\",\"email\":\"" + email + "\"}";
+    }
+}
@@ -0,0 +1,42 @@
+package pl.krutkowski.users.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = "user:read")
+class UserSearchControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void rejectsUnknownMatch() throws Exception {
+        mockMvc.perform(get("/api/v1/user/search").param("q", "krut").param("match", "fuzzy"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("UNKNOWN SEARCH MATCH fuzzy")));
+    }
+
+    @Test
+    void acceptsSingleCharacterPrefix() throws Exception {
+        mockMvc.perform(get("/api/v1/user/search").param("q", "k").param("match", "prefix"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void rejectsUnknownSuggestField() throws Exception {
+        mockMvc.perform(get("/api/v1/user/suggest").param("prefix", "krut").param("field", "phone"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("UNKNOWN SUGGEST FIELD phone")));
+    }
+}
@@ -0,0 +1,26 @@
+package pl.krutkowski.users.enumeration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PermissionTests {
+
+    @Test
+    void keepsTheBitsOfIssuedTokens() {
+        assertThat(Permission.USER_READ.getMask()).isEqualTo(1);
+        assertThat(Permission.USER_CREATE.getMask()).isEqualTo(2);
+        assertThat(Permission.USER_UPDATE.getMask()).isEqualTo(4);
+        assertThat(Permission.USER_DELETE.getMask()).isEqualTo(8);
+    }
+
+    @Test
+    void givesEveryPermissionItsOwnBit() {
+        int combined = 0;
+        for (Permission permission : Permission.values()) {
+            assertThat(Integer.bitCount(permission.getMask())).isEqualTo(1);
+            assertThat(combined & permission.getMask()).isZero();
+            combined |= permission.getMask();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package pl.krutkowski.users.enumeration;
+
+import org.junit.jupiter.api.Test;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.exception.domain.InvalidFieldsException;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class UserFieldTests {
+
+    @Test
+    void parsesRequestedFieldsInEnumOrder() throws Exception {
+        assertThat(UserField.parse(" email ,username", UserField.DETAIL)).containsExactly(UserField.USERNAME, UserField.EMAIL);
+    }
+
+    @Test
+    void blankMeansDefaults() throws Exception {
+        assertThat(UserField.parse(null, UserField.LIST)).isSameAs(UserField.LIST);
+        assertThat(UserField.parse(" ", UserField.LIST)).isSameAs(UserField.LIST);
+    }
+
+    @Test
+    void rejectsUnknownField() {
+        assertThatThrownBy(() -> UserField.parse("username,shoeSize", UserField.DETAIL))
+                .isInstanceOf(InvalidFieldsException.class)
+                .hasMessageContaining("shoeSize");
+    }
+
+    @Test
+    void neverExposesIdOrPassword() {
+        assertThat(Arrays.stream(UserField.values()).map(UserField::getName)).doesNotContain("id", "password");
+        assertThat(Arrays.stream(UserField.values()).map(UserField::getAttribute)).doesNotContain("id", "password");
+        assertThatThrownBy(() -> UserField.parse("password", UserField.DETAIL)).isInstanceOf(InvalidFieldsException.class);
+        assertThatThrownBy(() -> UserField.parse("id", UserField.DETAIL)).isInstanceOf(InvalidFieldsException.class);
+    }
+
+    @Test
+    void projectsOnlyRequestedFields() throws Exception {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("krutkowski");
+        user.setEmail("krutkowski@example.com");
+        user.setPassword("$2a$10$hash");
+        user.setActive(true);
+
+        assertThat(UserField.project(user, UserField.parse("username,active", UserField.DETAIL)))
+                .containsExactly(entry("username", "krutkowski"), entry("active", true));
+        assertThat(UserField.project(user, UserField.DETAIL)).doesNotContainKeys("id", "password");
+    }
+}
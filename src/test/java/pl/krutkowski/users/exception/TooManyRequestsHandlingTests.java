@@ -0,0 +1,39 @@
+package pl.krutkowski.users.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import pl.krutkowski.users.exception.domain.TooManyRequestsException;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pl.krutkowski.users.constant.SecurityConstant.PASSWORD_HASHING_BUSY;
+
+class TooManyRequestsHandlingTests {
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new BusyController())
+            .setControllerAdvice(new ExceptionHandling())
+            .build();
+
+    @Test
+    void answersWithTooManyRequestsAndRetryAfter() throws Exception {
+        mockMvc.perform(get("/busy"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"))
+                .andExpect(jsonPath("$.message").value(PASSWORD_HASHING_BUSY));
+    }
+
+    @RestController
+    static class BusyController {
+
+        @GetMapping("/busy")
+        String busy() {
+            throw new TooManyRequestsException(PASSWORD_HASHING_BUSY, 7);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package pl.krutkowski.users.filter;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.enumeration.Role;
+import pl.krutkowski.users.utility.JTWTokenProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static pl.krutkowski.users.constant.SecurityConstant.TOKEN_PREFIX;
+
+class JWTAuthorizationFilterTests {
+
+    private final JTWTokenProvider provider = new JTWTokenProvider("test-secret");
+    private final JWTAuthorizationFilter filter = new JWTAuthorizationFilter(provider);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void skipsPublicUrls() {
+        assertThat(filter.shouldNotFilter(request("/api/v1/user/image/alice/alice.jpg"))).isTrue();
+        assertThat(filter.shouldNotFilter(request("/api/v1/user/login"))).isTrue();
+        assertThat(filter.shouldNotFilter(request("/api/v1/user/list"))).isFalse();
+    }
+
+    @Test
+    void ignoresBadTokenOnPublicUrl() throws Exception {
+        MockHttpServletRequest request = request("/api/v1/user/image/alice/alice.jpg");
+        request.addHeader(HttpHeaders.AUTHORIZATION, TOKEN_PREFIX + "not.a.token");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void authenticatesValidToken() throws Exception {
+        User user = new User();
+        user.setUsername("alice");
+        user.setRole(Role.ROLE_HR.name());
+        MockHttpServletRequest request = request("/api/v1/user/list");
+        request.addHeader(HttpHeaders.AUTHORIZATION, TOKEN_PREFIX + provider.generateToken(new UserPrinciple(user)));
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("alice");
+    }
+
+    @Test
+    void rejectsBadTokenOnProtectedUrl() {
+        MockHttpServletRequest request = request("/api/v1/user/list");
+        request.addHeader(HttpHeaders.AUTHORIZATION, TOKEN_PREFIX + "not.a.token");
+
+        assertThatThrownBy(() -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain()))
+                .isInstanceOf(JWTVerificationException.class);
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRequestURI(uri);
+        return request;
+    }
+}
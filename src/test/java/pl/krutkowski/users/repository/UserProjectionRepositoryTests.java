@@ -0,0 +1,105 @@
+package pl.krutkowski.users.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.krutkowski.users.enumeration.UserField;
+import pl.krutkowski.users.utility.KeysetCursor;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Captures the SQL Hibernate sends to check that a projection selects only the requested columns.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=pl.krutkowski.users.repository.UserProjectionRepositoryTests$CapturingStatementInspector")
+@AutoConfigureMockMvc
+@WithMockUser
+class UserProjectionRepositoryTests {
+
+    private static final long ID = -300;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+                INSERT INTO users_app_table (id, user_id, first_name, username, password, email, join_date, role, is_active, is_not_locked)
+                VALUES (?, 'projection', 'Projected', 'projection', '$2a$10$hash', 'projection@example.com', now(), 'ROLE_USER', true, true)""", ID);
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users_app_table WHERE id = ?", ID);
+    }
+
+    @Test
+    void selectsOnlyRequestedColumns() {
+        List<Map<String, Object>> rows = userRepository.findPageAfter(ID - 1, null, null, null,
+                EnumSet.of(UserField.USERNAME, UserField.EMAIL), 1);
+
+        assertThat(rows).singleElement().satisfies(row -> assertThat(row)
+                .containsOnlyKeys(UserProjectionRepository.ID, "username", "email")
+                .containsEntry("username", "projection"));
+        String select = CapturingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.contains("users_app_table"))
+                .findFirst()
+                .orElseThrow()
+                .toLowerCase();
+        String columns = select.substring(0, select.indexOf(" from "));
+        assertThat(columns).contains("username", "email").doesNotContain("password", "first_name", "authorities");
+    }
+
+    @Test
+    void pageReturnsRequestedFieldsWithoutId() throws Exception {
+        mockMvc.perform(get("/api/v1/user/page").param("fields", "username").param("size", "1")
+                        .param("cursor", KeysetCursor.encode(ID - 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].username").value("projection"))
+                .andExpect(jsonPath("$.users[0].id").doesNotExist())
+                .andExpect(jsonPath("$.users[0].email").doesNotExist());
+    }
+
+    @Test
+    void rejectsUnknownAndHiddenFields() throws Exception {
+        mockMvc.perform(get("/api/v1/user/page").param("fields", "username,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("password")));
+        mockMvc.perform(get("/api/v1/user/find/projection").param("fields", "id"))
+                .andExpect(status().isBadRequest());
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
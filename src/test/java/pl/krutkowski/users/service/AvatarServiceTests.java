@@ -0,0 +1,50 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pl.krutkowski.users.domain.Avatar;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvatarServiceTests {
+
+    private static final int CONCURRENT_REQUESTS = 16;
+
+    @Test
+    void drawsOnceAndSharesTheResult() throws Exception {
+        AvatarService avatarService = avatarService();
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        try {
+            List<CompletableFuture<Avatar>> requests = IntStream.range(0, CONCURRENT_REQUESTS)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> avatarService.getAvatar("krutkowski"), executor))
+                    .toList();
+
+            Avatar first = requests.get(0).join();
+            assertThat(requests).allSatisfy(request -> assertThat(request.join()).isSameAs(first));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void sameUsernameGivesSameAvatarAfterRestart() {
+        Avatar drawn = avatarService().getAvatar("krutkowski");
+        Avatar reloaded = avatarService().getAvatar("krutkowski");
+
+        assertThat(reloaded.image()).isEqualTo(drawn.image());
+        assertThat(reloaded.eTag()).isEqualTo(drawn.eTag());
+        assertThat(avatarService().getAvatar("nowak").image()).isNotEqualTo(drawn.image());
+    }
+
+    private AvatarService avatarService() {
+        return new AvatarService(new SimpleMeterRegistry(), 120, 100,
+                false, "https://robohash.org/", Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,68 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import pl.krutkowski.users.domain.OutboxEmail;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * An email whose lease may run out mid-send must not be sent, as another node could claim and send it too.
+ */
+class EmailOutboxDispatcherTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final EmailOutboxDispatcher dispatcher = new EmailOutboxDispatcher(jdbcTemplate, emailService,
+            new SimpleMeterRegistry(), 10, 8, Duration.ofSeconds(30), Duration.ofHours(1),
+            Duration.ofSeconds(2), Duration.ofSeconds(1), 1);
+
+    @AfterEach
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void releasesEmailsThatCannotBeSentWithinTheLease() throws Exception {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenReturn(List.of(
+                new OutboxEmail(1L, "slow@example.com", "Subject", "Body", 1),
+                new OutboxEmail(2L, "late@example.com", "Subject", "Body", 1)));
+        doAnswer(invocation -> {
+            Thread.sleep(1200);
+            return null;
+        }).when(emailService).send(eq("slow@example.com"), anyString(), anyString());
+
+        dispatcher.dispatch();
+
+        verify(jdbcTemplate).update(contains("DELETE"), eq(1L));
+        verify(emailService, never()).send(eq("late@example.com"), anyString(), anyString());
+        verify(jdbcTemplate).update(contains("attempts = attempts - 1"), eq(2L));
+    }
+
+    @Test
+    void sendsWholeBatchWithinTheLease() throws Exception {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenReturn(List.of(
+                new OutboxEmail(1L, "first@example.com", "Subject", "Body", 1),
+                new OutboxEmail(2L, "second@example.com", "Subject", "Body", 1)));
+
+        dispatcher.dispatch();
+
+        verify(emailService).send("first@example.com", "Subject", "Body");
+        verify(emailService).send("second@example.com", "Subject", "Body");
+        verify(jdbcTemplate, never()).update(contains("attempts = attempts - 1"), any(Object.class));
+    }
+}
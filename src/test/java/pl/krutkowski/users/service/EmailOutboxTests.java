@@ -0,0 +1,73 @@
+package pl.krutkowski.users.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(properties = {
+        "email.smtp.protocol=smtp",
+        "email.smtp.host=localhost",
+        "email.smtp.port=3025",
+        "email.smtp.starttls=false",
+        "email.outbox.poll-interval=100"
+})
+class EmailOutboxTests {
+
+    private static final long DELIVERY_TIMEOUT = 5000;
+    private static final String COUNT_OUTBOX_SQL = "SELECT count(*) FROM email_outbox WHERE recipient = ?";
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void committedEmailIsSentAndRemovedFromOutbox() throws Exception {
+        String recipient = "outbox" + RandomStringUtils.randomNumeric(8) + "@example.com";
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                emailService.sendNewPasswordEmail("Outbox", recipient, "Secret123"));
+
+        assertThat(greenMail.waitForIncomingEmail(DELIVERY_TIMEOUT, 1)).isTrue();
+        MimeMessage message = greenMail.getReceivedMessages()[0];
+        assertThat(message.getAllRecipients()[0].toString()).isEqualTo(recipient);
+        assertThat(GreenMailUtil.getBody(message)).contains("Secret123");
+        // The row is deleted just after the message is handed over, so it may still be there for a moment
+        await().atMost(Duration.ofMillis(DELIVERY_TIMEOUT)).untilAsserted(() ->
+                assertThat(jdbcTemplate.queryForObject(COUNT_OUTBOX_SQL, Long.class, recipient)).isZero());
+    }
+
+    @Test
+    void rolledBackEmailIsNeverSent() {
+        String recipient = "outbox" + RandomStringUtils.randomNumeric(8) + "@example.com";
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            emailService.sendNewPasswordEmail("Outbox", recipient, "Secret123");
+            status.setRollbackOnly();
+        });
+
+        assertThat(greenMail.waitForIncomingEmail(1000, 1)).isFalse();
+        assertThat(jdbcTemplate.queryForObject(COUNT_OUTBOX_SQL, Long.class, recipient)).isZero();
+    }
+}
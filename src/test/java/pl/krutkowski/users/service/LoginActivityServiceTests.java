@@ -0,0 +1,111 @@
+package pl.krutkowski.users.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import pl.krutkowski.users.repository.LoginHistoryRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static pl.krutkowski.users.constant.UserConstant.MAX_PAGE_SIZE;
+
+class LoginActivityServiceTests {
+
+    private static final long NEVER = 3_600_000;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final LoginHistoryRepository loginHistoryRepository = mock(LoginHistoryRepository.class);
+    private final UserCacheService userCacheService = mock(UserCacheService.class);
+    private LoginActivityService loginActivityService;
+
+    @AfterEach
+    void shutdown() throws Exception {
+        loginActivityService.shutdown();
+    }
+
+    @Test
+    void coalescesLastLoginsButKeepsEveryHistoryRow() throws Exception {
+        loginActivityService = service(500);
+
+        loginActivityService.recordLogin("alice");
+        loginActivityService.recordLogin("alice");
+        loginActivityService.recordLogin("bob");
+        loginActivityService.shutdown();
+
+        assertThat(batch("UPDATE users_app_table")).extracting(row -> row[1]).containsExactly("alice", "bob");
+        assertThat(batch("INSERT INTO user_login_history")).extracting(row -> row[0])
+                .containsExactly("alice", "alice", "bob");
+        verify(userCacheService).updateLastLogins(any());
+    }
+
+    @Test
+    void flushesOnceBatchIsFull() {
+        loginActivityService = service(2);
+
+        loginActivityService.recordLogin("alice");
+        verify(jdbcTemplate, never()).batchUpdate(contains("UPDATE users_app_table"), anyList());
+        loginActivityService.recordLogin("bob");
+
+        verify(jdbcTemplate, timeout(5000)).batchUpdate(contains("UPDATE users_app_table"), anyList());
+        verify(jdbcTemplate, timeout(5000)).batchUpdate(contains("INSERT INTO user_login_history"), anyList());
+    }
+
+    @Test
+    void keepsPendingLoginsWhenBatchFails() throws Exception {
+        loginActivityService = service(500);
+        when(jdbcTemplate.batchUpdate(any(String.class), anyList()))
+                .thenThrow(new TransientDataAccessResourceException("connection lost"))
+                .thenReturn(new int[0]);
+
+        loginActivityService.recordLogin("alice");
+        assertThatThrownBy(loginActivityService::shutdown).isInstanceOf(TransientDataAccessResourceException.class);
+        // The failed last login update did not hold back the history
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO user_login_history"), anyList());
+
+        loginActivityService.shutdown();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("UPDATE users_app_table"), anyList());
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO user_login_history"), anyList());
+    }
+
+    @Test
+    void clampsHistoryPaging() {
+        loginActivityService = service(500);
+
+        loginActivityService.getLoginHistory("alice", -1, 0);
+        loginActivityService.getLoginHistory("alice", 2, 1000);
+
+        verify(loginHistoryRepository).findByUsernameOrderByLoginDateDesc("alice", PageRequest.of(0, 1));
+        verify(loginHistoryRepository).findByUsernameOrderByLoginDateDesc("alice", PageRequest.of(2, MAX_PAGE_SIZE));
+    }
+
+    private LoginActivityService service(int batchSize) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return new LoginActivityService(jdbcTemplate, transactionManager, loginHistoryRepository, userCacheService,
+                NEVER, batchSize, 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> batch(String sql) {
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains(sql), batch.capture());
+        return batch.getValue();
+    }
+}
@@ -0,0 +1,123 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageProcessorTests {
+
+    private final ProfileImageProcessor processor = new ProfileImageProcessor(new SimpleMeterRegistry(),
+            List.of(64, 128, 512), 1, 4, 50_000_000L, 0.85f);
+
+    @TempDir
+    Path folder;
+
+    @AfterEach
+    void shutdown() {
+        processor.shutdown();
+    }
+
+    @Test
+    void createsSquareJpegForEverySize() throws Exception {
+        Path original = upload(1600, 900);
+
+        processor.process(original).get(10, TimeUnit.SECONDS);
+
+        for (int size : List.of(64, 128, 512)) {
+            Optional<Path> variant = processor.findVariant(original, size);
+            assertThat(variant).isPresent();
+            BufferedImage image = ImageIO.read(variant.get().toFile());
+            assertThat(image.getWidth()).isEqualTo(size);
+            assertThat(image.getHeight()).isEqualTo(size);
+        }
+        assertThat(processor.findVariant(original, 40)).map(Path::getFileName).map(Path::toString)
+                .hasValueSatisfying(name -> assertThat(name).endsWith("-64.jpg"));
+        assertThat(processor.findVariant(original, null)).map(Path::getFileName).map(Path::toString)
+                .hasValueSatisfying(name -> assertThat(name).endsWith("-512.jpg"));
+    }
+
+    @Test
+    void reuploadReplacesVariants() throws Exception {
+        Path original = upload(300, 300);
+        processor.process(original).get(10, TimeUnit.SECONDS);
+        Path first = processor.findVariant(original, 64).orElseThrow();
+
+        upload(400, 200);
+        Files.setLastModifiedTime(original, FileTime.fromMillis(Files.getLastModifiedTime(original).toMillis() + 1000));
+
+        assertThat(processor.findVariant(original, 64)).isEmpty();
+        processor.process(original).get(10, TimeUnit.SECONDS);
+        assertThat(processor.findVariant(original, 64)).isPresent().get().isNotEqualTo(first);
+        assertThat(first).doesNotExist();
+    }
+
+    @Test
+    void turnsImageUprightBeforeCropping() throws Exception {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 200; x++)
+                image.setRGB(x, y, x < 100 ? 0xFF0000 : 0x0000FF);
+        }
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        Path original = folder.resolve("user.jpg");
+        Files.write(original, withOrientation(jpeg.toByteArray(), 6));
+
+        processor.process(original).get(10, TimeUnit.SECONDS);
+
+        BufferedImage variant = ImageIO.read(processor.findVariant(original, 64).orElseThrow().toFile());
+        // Turned clockwise, the red left half ends up on top
+        assertThat(isRed(variant.getRGB(4, 4))).isTrue();
+        assertThat(isRed(variant.getRGB(59, 4))).isTrue();
+        assertThat(isRed(variant.getRGB(4, 59))).isFalse();
+    }
+
+    private static boolean isRed(int rgb) {
+        return (rgb >> 16 & 0xFF) > 200 && (rgb & 0xFF) < 60;
+    }
+
+    /**
+     * Inserts an EXIF segment holding only an orientation right after the JFIF header.
+     */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = ByteBuffer.allocate(2 + 2 + 6 + 8 + 2 + 12 + 4)
+                .putShort((short) 0xFFE1).putShort((short) (2 + 6 + 8 + 2 + 12 + 4))
+                .put(new byte[]{'E', 'x', 'i', 'f', 0, 0})
+                .put(new byte[]{'M', 'M'}).putShort((short) 0x2A).putInt(8)
+                .putShort((short) 1)
+                .putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0)
+                .putInt(0)
+                .array();
+        int app0End = 4 + ((jpeg[4] & 0xFF) << 8 | jpeg[5] & 0xFF);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, app0End);
+        out.write(exif, 0, exif.length);
+        out.write(jpeg, app0End, jpeg.length - app0End);
+        return out.toByteArray();
+    }
+
+    private Path upload(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                image.setRGB(x, y, (x / 10 + y / 10) % 2 == 0 ? 0x80FF0000 : 0xFF0000FF);
+        }
+        Path original = folder.resolve("user.jpg");
+        ImageIO.write(image, "png", original.toFile());
+        return original;
+    }
+}
@@ -0,0 +1,74 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import pl.krutkowski.users.domain.Availability;
+import pl.krutkowski.users.repository.UserRepository;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A user registered on this node while a rebuild streams the table must not be reported as free by the rebuilt
+ * filters, even though the stream did not see the row.
+ */
+class UserAvailabilityServiceTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private UserAvailabilityService userAvailabilityService;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        userAvailabilityService = new UserAvailabilityService(userRepository, transactionManager, new SimpleMeterRegistry(), 0.000_001, 1_000);
+        when(userRepository.count()).thenReturn(1L);
+        when(userRepository.streamAllUsernames()).thenAnswer(invocation -> Stream.of("alice"));
+        when(userRepository.streamAllEmails()).thenAnswer(invocation -> Stream.of("alice@example.com"));
+        userAvailabilityService.rebuild();
+    }
+
+    @Test
+    void keepsUsersTakenDuringRebuild() {
+        when(userRepository.streamAllUsernames()).thenAnswer(invocation -> {
+            userAvailabilityService.taken("bob", "bob@example.com");
+            return Stream.of("alice");
+        });
+        when(userRepository.usernameExists("bob")).thenReturn(true);
+        when(userRepository.emailExists("bob@example.com")).thenReturn(true);
+
+        userAvailabilityService.rebuild();
+
+        assertThat(userAvailabilityService.check("bob", "bob@example.com")).isEqualTo(new Availability(false, false));
+        verify(userRepository).usernameExists("bob");
+        verify(userRepository).emailExists("bob@example.com");
+    }
+
+    @Test
+    void keepsUsersTakenBeforeTheirCommitAcrossRebuilds() {
+        userAvailabilityService.taken("bob", "bob@example.com");
+        when(userRepository.usernameExists("bob")).thenReturn(true);
+
+        userAvailabilityService.rebuild();
+        userAvailabilityService.rebuild();
+
+        assertThat(userAvailabilityService.check("bob", null).username()).isFalse();
+    }
+
+    @Test
+    void answersFreeValuesWithoutQuery() {
+        assertThat(userAvailabilityService.check("carol", "carol@example.com")).isEqualTo(new Availability(true, true));
+        verify(userRepository, never()).usernameExists(anyString());
+        verify(userRepository, never()).emailExists(anyString());
+    }
+}
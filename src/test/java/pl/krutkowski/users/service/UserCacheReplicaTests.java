@@ -0,0 +1,57 @@
+package pl.krutkowski.users.service;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.krutkowski.users.domain.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replica pool reads a snapshot of users_app_table taken before the update, standing in for a replica that has
+ * not caught up yet.
+ */
+@SpringBootTest(properties = {
+        "replica-datasource.url=${spring.datasource.url}",
+        "replica-datasource.hikari.connection-init-sql=SET search_path TO lagging_replica, public"
+})
+class UserCacheReplicaTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String username;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        username = "cached" + RandomStringUtils.randomNumeric(8);
+        userService.registerUser("Before", "Cached", username, username + "@example.com");
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS lagging_replica CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA lagging_replica");
+        jdbcTemplate.execute("CREATE TABLE lagging_replica.users_app_table AS SELECT * FROM public.users_app_table");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS lagging_replica CASCADE");
+        jdbcTemplate.update("DELETE FROM users_app_table WHERE username = ?", username);
+    }
+
+    @Test
+    void readAfterUpdateSeesTheUpdate() throws Exception {
+        assertThat(userService.findUserUsername(username).getFirstName()).isEqualTo("Before");
+
+        userService.updateUser(username, "After", "Cached", username, username + "@example.com", "ROLE_USER", true, true, null);
+
+        User user = userService.findUserUsername(username);
+        assertThat(user.getFirstName()).isEqualTo("After");
+        assertThat(userService.findUserByEmail(username + "@example.com").getFirstName()).isEqualTo("After");
+    }
+}
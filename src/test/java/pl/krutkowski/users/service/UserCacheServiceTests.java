@@ -0,0 +1,131 @@
+package pl.krutkowski.users.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheServiceTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private UserCacheService userCacheService;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        userCacheService = new UserCacheService(userRepository, mock(JdbcTemplate.class), transactionManager,
+                new SimpleMeterRegistry(), 1000, Duration.ofMinutes(5), false, "user_cache");
+        when(userRepository.findUserByUsername("alice")).thenAnswer(invocation -> user("alice"));
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findUserByUsername("bob")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return user("bob");
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<User>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                lookups.add(CompletableFuture.supplyAsync(() -> userCacheService.findUserByUsername("bob"), callers));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            // Give the other callers time to pile up behind the load in flight
+            Thread.sleep(200);
+            release.countDown();
+
+            for (CompletableFuture<User> lookup : lookups)
+                assertThat(lookup.get(5, TimeUnit.SECONDS).getUsername()).isEqualTo("bob");
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(userRepository, times(1)).findUserByUsername("bob");
+    }
+
+    @Test
+    void handsOutCopies() {
+        userCacheService.findUserByUsername("alice").setFirstName("Changed");
+
+        assertThat(userCacheService.findUserByUsername("alice").getFirstName()).isEqualTo("Alice");
+    }
+
+    @Test
+    void evictsOnlyAfterCommit() {
+        userCacheService.findUserByUsername("alice");
+        TransactionSynchronizationManager.initSynchronization();
+
+        userCacheService.evict("alice", null);
+        userCacheService.findUserByUsername("alice");
+        verify(userRepository, times(1)).findUserByUsername("alice");
+
+        commit();
+        userCacheService.findUserByUsername("alice");
+        verify(userRepository, times(2)).findUserByUsername("alice");
+    }
+
+    @Test
+    void keepsEntryWhenTransactionRollsBack() {
+        userCacheService.findUserByUsername("alice");
+        TransactionSynchronizationManager.initSynchronization();
+
+        userCacheService.evict("alice", null);
+        rollback();
+        userCacheService.findUserByUsername("alice");
+
+        verify(userRepository, times(1)).findUserByUsername("alice");
+    }
+
+    static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setFirstName(Character.toUpperCase(username.charAt(0)) + username.substring(1));
+        return user;
+    }
+
+    static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    static void rollback() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+}
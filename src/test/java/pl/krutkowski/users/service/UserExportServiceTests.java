@@ -0,0 +1,101 @@
+package pl.krutkowski.users.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.krutkowski.users.enumeration.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports one million rows through the repository stream, checking along the way that exported users do not pile
+ * up in the persistence context.
+ */
+@SpringBootTest
+class UserExportServiceTests {
+
+    private static final int ROWS = 1_000_000;
+    private static final int CHECK_EVERY = 50_000;
+    private static final int MAX_MANAGED_ENTITIES = 1_000;
+    // Negative ids never collide with the ones Hibernate takes from the sequence
+    private static final String INSERT_USERS_SQL = """
+            INSERT INTO users_app_table (id, user_id, first_name, last_name, username, email, join_date, role, is_active, is_not_locked)
+            SELECT -n, n::text, 'First', 'Last', 'export' || n, 'export' || n || '@example.com', now(), 'ROLE_USER', true, true
+            FROM generate_series(1, ?) AS n""";
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update(INSERT_USERS_SQL, ROWS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users_app_table WHERE id < 0");
+    }
+
+    @Test
+    void streamsOneMillionUsersWithoutKeepingThemManaged() {
+        long total = jdbcTemplate.queryForObject("SELECT count(*) FROM users_app_table", Long.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            ManagedEntitiesProbe outputStream = new ManagedEntitiesProbe(entityManager.unwrap(Session.class));
+            try {
+                long exported = userExportService.exportUsers(ExportFormat.NDJSON, outputStream);
+
+                assertThat(exported).isEqualTo(total);
+                assertThat(outputStream.lines).isEqualTo(total);
+                assertThat(outputStream.maxManaged).isLessThanOrEqualTo(MAX_MANAGED_ENTITIES);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static final class ManagedEntitiesProbe extends OutputStream {
+
+        private final Session session;
+        private long lines;
+        private int maxManaged;
+
+        private ManagedEntitiesProbe(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n' && ++lines % CHECK_EVERY == 0)
+                maxManaged = Math.max(maxManaged, session.getStatistics().getEntityCount());
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++)
+                write(bytes[i]);
+        }
+    }
+}
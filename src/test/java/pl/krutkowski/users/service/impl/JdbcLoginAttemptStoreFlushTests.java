@@ -0,0 +1,58 @@
+package pl.krutkowski.users.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A reset or a failed attempt landing while a flush writes its batch must survive the flush.
+ */
+class JdbcLoginAttemptStoreFlushTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final JdbcLoginAttemptStore store =
+            new JdbcLoginAttemptStore(jdbcTemplate, Duration.ofMinutes(15), 1000, Duration.ofMinutes(1));
+
+    @Test
+    void keepsIncrementsAfterResetDuringFlush() {
+        when(jdbcTemplate.queryForList(any(String.class), eq(Integer.class), any(), any())).thenReturn(List.of());
+        store.increment("alice");
+        store.increment("alice");
+        store.increment("alice");
+        doAnswer(invocation -> {
+            store.reset("alice");
+            store.increment("alice");
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(contains("INSERT INTO login_attempt"), anyList());
+
+        store.flush();
+
+        assertThat(store.getAttempts("alice")).isEqualTo(1);
+    }
+
+    @Test
+    void keepsIncrementsArrivingDuringFlush() {
+        when(jdbcTemplate.queryForList(any(String.class), eq(Integer.class), any(), any())).thenReturn(List.of());
+        store.increment("alice");
+        store.increment("alice");
+        doAnswer(invocation -> {
+            store.increment("alice");
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(contains("INSERT INTO login_attempt"), anyList());
+
+        store.flush();
+
+        assertThat(store.getAttempts("alice")).isEqualTo(3);
+    }
+}
@@ -0,0 +1,76 @@
+package pl.krutkowski.users.service.impl;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.krutkowski.users.service.LoginAttemptService;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Two stores on one database stand in for two nodes behind a load balancer.
+ */
+@SpringBootTest
+class JdbcLoginAttemptStoreTests {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration NEAR_CACHE_TTL = Duration.ofSeconds(1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcLoginAttemptStore firstStore;
+    private JdbcLoginAttemptStore secondStore;
+    private LoginAttemptService firstNode;
+    private LoginAttemptService secondNode;
+    private String username;
+
+    @BeforeEach
+    void setUp() {
+        firstStore = new JdbcLoginAttemptStore(jdbcTemplate, Duration.ofMinutes(15), 1000, NEAR_CACHE_TTL);
+        secondStore = new JdbcLoginAttemptStore(jdbcTemplate, Duration.ofMinutes(15), 1000, NEAR_CACHE_TTL);
+        firstNode = new LoginAttemptService(MAX_ATTEMPTS, firstStore);
+        secondNode = new LoginAttemptService(MAX_ATTEMPTS, secondStore);
+        username = "attempts" + RandomStringUtils.randomNumeric(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM login_attempt WHERE username = ?", username);
+    }
+
+    @Test
+    void failuresSplitAcrossNodesLockTheAccount() {
+        for (int i = 0; i < 3; i++)
+            firstNode.addUserToCache(username);
+        firstStore.flush();
+        for (int i = 0; i < MAX_ATTEMPTS - 3; i++)
+            secondNode.addUserToCache(username);
+        secondStore.flush();
+
+        assertThat(secondNode.hasExceededMaxAttempt(username)).isTrue();
+        await().atMost(NEAR_CACHE_TTL.multipliedBy(5)).until(() -> firstNode.hasExceededMaxAttempt(username));
+    }
+
+    @Test
+    void resetOnOneNodeClearsBoth() {
+        for (int i = 0; i < MAX_ATTEMPTS; i++)
+            firstNode.addUserToCache(username);
+        firstStore.flush();
+        await().atMost(NEAR_CACHE_TTL.multipliedBy(5)).until(() -> secondNode.hasExceededMaxAttempt(username));
+
+        secondNode.evictUserFromCache(username);
+        secondStore.flush();
+
+        assertThat(secondNode.hasExceededMaxAttempt(username)).isFalse();
+        await().atMost(NEAR_CACHE_TTL.multipliedBy(5)).until(() -> !firstNode.hasExceededMaxAttempt(username));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM login_attempt WHERE username = ?", Long.class, username)).isZero();
+    }
+}
@@ -0,0 +1,144 @@
+package pl.krutkowski.users.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.repository.UserRepository;
+import pl.krutkowski.users.service.EmailService;
+import pl.krutkowski.users.service.LoginAttemptService;
+import pl.krutkowski.users.service.ProfileImageProcessor;
+import pl.krutkowski.users.service.UserAvailabilityService;
+import pl.krutkowski.users.service.UserCacheService;
+import pl.krutkowski.users.service.UserSuggestService;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs against a real user cache, so the tests see whether writes evict it and whether they wait for the commit.
+ */
+class UserServiceImplTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private UserCacheService userCacheService;
+    private UserServiceImpl userService;
+    private String storedFirstName = "Alice";
+    private String storedPassword = "{bcrypt}old";
+    private boolean stored = true;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        userCacheService = new UserCacheService(userRepository, mock(JdbcTemplate.class), transactionManager,
+                new SimpleMeterRegistry(), 1000, Duration.ofMinutes(5), false, "user_cache");
+        userService = new UserServiceImpl(userRepository, mock(PasswordEncoder.class), mock(LoginAttemptService.class),
+                mock(EmailService.class), userCacheService, mock(UserSuggestService.class),
+                mock(UserAvailabilityService.class), mock(ProfileImageProcessor.class), mock(ApplicationEventPublisher.class));
+        when(userRepository.findUserByUsername("alice")).thenAnswer(invocation -> stored ? storedUser() : null);
+        when(userRepository.findUserByEmail("alice@example.com")).thenAnswer(invocation -> stored ? storedUser() : null);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void updateEvictsCachedUserAfterCommit() throws Exception {
+        assertThat(userCacheService.findUserByUsername("alice").getFirstName()).isEqualTo("Alice");
+        TransactionSynchronizationManager.initSynchronization();
+
+        userService.updateUser("alice", "Changed", "Smith", "alice", "alice@example.com", "ROLE_USER", true, true, null);
+        storedFirstName = "Changed";
+
+        assertThat(userCacheService.findUserByUsername("alice").getFirstName()).isEqualTo("Alice");
+        commit();
+        assertThat(userCacheService.findUserByUsername("alice").getFirstName()).isEqualTo("Changed");
+    }
+
+    @Test
+    void deleteEvictsCachedUserAfterCommit() {
+        assertThat(userCacheService.findUserByEmail("alice@example.com")).isNotNull();
+        TransactionSynchronizationManager.initSynchronization();
+
+        userService.deleteUser("alice");
+        stored = false;
+
+        assertThat(userCacheService.findUserByUsername("alice")).isNotNull();
+        commit();
+        assertThat(userCacheService.findUserByUsername("alice")).isNull();
+        assertThat(userCacheService.findUserByEmail("alice@example.com")).isNull();
+    }
+
+    @Test
+    void resetPasswordEvictsCachedUserAfterCommit() throws Exception {
+        assertThat(userCacheService.findUserByUsername("alice").getPassword()).isEqualTo("{bcrypt}old");
+        TransactionSynchronizationManager.initSynchronization();
+
+        userService.resetPassword("alice@example.com");
+        storedFirstName = "Reset";
+
+        assertThat(userCacheService.findUserByUsername("alice").getFirstName()).isEqualTo("Alice");
+        commit();
+        assertThat(userCacheService.findUserByUsername("alice").getFirstName()).isEqualTo("Reset");
+    }
+
+    @Test
+    void returnsPrincipalWithUpgradedHash() {
+        UserPrinciple principal = new UserPrinciple(storedUser());
+
+        UserDetails upgraded = userService.updatePassword(principal, "{argon2}new");
+
+        assertThat(upgraded).isInstanceOf(UserPrinciple.class);
+        assertThat(upgraded.getPassword()).isEqualTo("{argon2}new");
+        assertThat(upgraded.getUsername()).isEqualTo("alice");
+        assertThat(principal.getPassword()).isEqualTo("{bcrypt}old");
+        verify(userRepository).save(argThat(user -> "{argon2}new".equals(user.getPassword())));
+    }
+
+    @Test
+    void evictsCachedUserWithOldHash() {
+        assertThat(userCacheService.findUserByUsername("alice").getPassword()).isEqualTo("{bcrypt}old");
+
+        userService.updatePassword(new UserPrinciple(storedUser()), "{argon2}new");
+        storedPassword = "{argon2}new";
+
+        assertThat(userCacheService.findUserByUsername("alice").getPassword()).isEqualTo("{argon2}new");
+    }
+
+    private User storedUser() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setFirstName(storedFirstName);
+        user.setPassword(storedPassword);
+        user.setRole("ROLE_USER");
+        return user;
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+}
@@ -0,0 +1,38 @@
+package pl.krutkowski.users.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import pl.krutkowski.users.enumeration.Permission;
+import pl.krutkowski.users.enumeration.Role;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthorityRegistryTests {
+
+    @Test
+    void grantsEveryPermissionOfItsMask() {
+        int all = 0;
+        for (Permission permission : Permission.values()) {
+            assertThat(AuthorityRegistry.authoritiesOf(permission.getMask()))
+                    .extracting(GrantedAuthority::getAuthority).containsExactly(permission.getAuthority());
+            all |= permission.getMask();
+        }
+
+        assertThat(AuthorityRegistry.authoritiesOf(all)).hasSize(Permission.values().length);
+    }
+
+    @Test
+    void ignoresBitsOfNoPermission() {
+        int unknown = 1 << 30;
+
+        assertThat(AuthorityRegistry.authoritiesOf(unknown | Permission.USER_DELETE.getMask()))
+                .extracting(GrantedAuthority::getAuthority).containsExactly(Permission.USER_DELETE.getAuthority());
+    }
+
+    @Test
+    void mapsRoleAuthoritiesToTheirMask() {
+        assertThat(AuthorityRegistry.authoritiesOf(Role.ROLE_SUPER_ADMIN.getPermissions()))
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder(Role.ROLE_SUPER_ADMIN.getAuthorities());
+    }
+}
@@ -0,0 +1,69 @@
+package pl.krutkowski.users.utility;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import pl.krutkowski.users.exception.domain.TooManyRequestsException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTests {
+
+    private static final long RETRY_AFTER_SECONDS = 7;
+
+    private final PasswordEncoder delegate = mock(PasswordEncoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 1, RETRY_AFTER_SECONDS, meterRegistry);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void saturate() {
+        when(delegate.encode(any())).thenAnswer(invocation -> {
+            release.await();
+            return "encoded";
+        });
+        // One hash runs on the only thread and one waits in the only queue slot
+        CompletableFuture.runAsync(() -> encoder.encode("running"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> meterRegistry.get("password.hashing.active").gauge().value() == 1);
+        CompletableFuture.runAsync(() -> encoder.encode("queued"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> meterRegistry.get("password.hashing.queue.depth").gauge().value() == 1);
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        encoder.shutdown();
+    }
+
+    @Test
+    void rejectsEncodeWhenQueueIsFull() {
+        assertThatThrownBy(() -> encoder.encode("rejected"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .extracting(e -> ((TooManyRequestsException) e).getRetryAfterSeconds()).isEqualTo(RETRY_AFTER_SECONDS);
+    }
+
+    @Test
+    void rejectsMatchesWhenQueueIsFull() {
+        assertThatThrownBy(() -> encoder.matches("rejected", "encoded")).isInstanceOf(TooManyRequestsException.class);
+        assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void acceptsWorkAgainOnceQueueDrains() {
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> meterRegistry.get("password.hashing.queue.depth").gauge().value() == 0);
+
+        assertThat(encoder.encode("accepted")).isEqualTo("encoded");
+    }
+}
@@ -0,0 +1,78 @@
+package pl.krutkowski.users.utility;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import org.junit.jupiter.api.Test;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.domain.UserPrinciple;
+import pl.krutkowski.users.domain.VerifiedToken;
+import pl.krutkowski.users.enumeration.Role;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static pl.krutkowski.users.constant.SecurityConstant.K_RUTKOWSKI;
+import static pl.krutkowski.users.constant.SecurityConstant.PERMISSIONS;
+
+class JTWTokenProviderTests {
+
+    private static final String SECRET = "test-secret";
+
+    private final JTWTokenProvider provider = new JTWTokenProvider(SECRET);
+
+    @Test
+    void verifiesTokenOnceThenServesItFromCache() {
+        String token = provider.generateToken(principal(Role.ROLE_HR));
+
+        VerifiedToken first = provider.verifyToken(token);
+
+        assertThat(first.subject()).isEqualTo("alice");
+        assertThat(first.permissions()).isEqualTo(Role.ROLE_HR.getPermissions());
+        assertThat(provider.verifyToken(token)).isSameAs(first);
+    }
+
+    @Test
+    void rejectsCachedTokenOncePastItsExpiry() {
+        String token = JWT.create().withIssuer(K_RUTKOWSKI).withSubject("alice").withClaim(PERMISSIONS, 1)
+                .withExpiresAt(Instant.now().plusSeconds(2))
+                .sign(Algorithm.HMAC512(SECRET.getBytes()));
+        assertThat(provider.verifyToken(token).subject()).isEqualTo("alice");
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThatThrownBy(() -> provider.verifyToken(token)).isInstanceOf(TokenExpiredException.class));
+    }
+
+    @Test
+    void rejectsTamperedToken() {
+        String token = provider.generateToken(principal(Role.ROLE_USER));
+        provider.verifyToken(token);
+        String[] parts = token.split("\\.");
+        String forgedPayload = JWT.create().withIssuer(K_RUTKOWSKI).withSubject("alice")
+                .withClaim(PERMISSIONS, Role.ROLE_SUPER_ADMIN.getPermissions())
+                .withExpiresAt(Instant.now().plusSeconds(60))
+                .sign(Algorithm.HMAC512(SECRET.getBytes())).split("\\.")[1];
+
+        assertThatThrownBy(() -> provider.verifyToken(parts[0] + "." + forgedPayload + "." + parts[2]))
+                .isInstanceOf(JWTVerificationException.class);
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherSecret() {
+        String token = new JTWTokenProvider("another-secret").generateToken(principal(Role.ROLE_USER));
+
+        assertThatThrownBy(() -> provider.verifyToken(token)).isInstanceOf(JWTVerificationException.class);
+    }
+
+    private static UserPrinciple principal(Role role) {
+        User user = new User();
+        user.setUsername("alice");
+        user.setRole(role.name());
+        user.setAuthorities(role.getAuthorities());
+        return new UserPrinciple(user);
+    }
+}
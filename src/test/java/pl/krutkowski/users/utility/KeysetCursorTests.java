@@ -0,0 +1,38 @@
+package pl.krutkowski.users.utility;
+
+import org.junit.jupiter.api.Test;
+import pl.krutkowski.users.exception.domain.InvalidCursorException;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTests {
+
+    @Test
+    void decodesWhatItEncodes() throws Exception {
+        for (long id : new long[]{1, 42, Long.MAX_VALUE})
+            assertThat(KeysetCursor.decode(KeysetCursor.encode(id))).isEqualTo(id);
+    }
+
+    @Test
+    void startsFromTheBeginningWithoutCursor() throws Exception {
+        assertThat(KeysetCursor.decode(null)).isZero();
+        assertThat(KeysetCursor.decode("")).isZero();
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor!"))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessage("INVALID PAGE CURSOR not a cursor!");
+    }
+
+    @Test
+    void rejectsCursorOfWrongLength() {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[]{1, 2, 3});
+
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor)).isInstanceOf(InvalidCursorException.class);
+    }
+}
@@ -0,0 +1,115 @@
+package pl.krutkowski.users.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrefixIndexTests {
+
+    @Test
+    void deltaShadowsPackedKeys() {
+        PrefixIndex index = index("alice", "bob");
+
+        index.remove("alice");
+        index.add("alex");
+
+        assertThat(index.suggest("a", 10)).containsExactly("alex");
+        assertThat(index.size()).isEqualTo(2);
+
+        index.add("ALICE");
+
+        assertThat(index.suggest("a", 10)).containsExactly("alex", "alice");
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void sizeIgnoresChangesThatDoNotChangeMembership() {
+        PrefixIndex index = index("alice", "bob");
+
+        index.add("alice");
+        index.remove("carol");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.pendingChanges()).isEqualTo(2);
+    }
+
+    @Test
+    void matchesOnlyKeysStartingWithPrefix() {
+        PrefixIndex index = index("ab", "abc", "abd", "ac", "b");
+        index.add("aba");
+
+        assertThat(index.suggest("ab", 10)).containsExactly("ab", "aba", "abc", "abd");
+        assertThat(index.suggest("abc", 10)).containsExactly("abc");
+        assertThat(index.suggest("abcd", 10)).isEmpty();
+        assertThat(index.suggest("c", 10)).isEmpty();
+        assertThat(index.suggest("", 10)).containsExactly("ab", "aba", "abc", "abd", "ac", "b");
+        assertThat(index.suggest("ab", 2)).containsExactly("ab", "aba");
+    }
+
+    @Test
+    void ordersMultiByteKeysByTheirUtf8Bytes() {
+        PrefixIndex index = index("żaneta", "zoe");
+        index.add("zuzanna");
+
+        assertThat(index.suggest("z", 10)).containsExactly("zoe", "zuzanna");
+        assertThat(index.suggest("ż", 10)).containsExactly("żaneta");
+    }
+
+    @Test
+    void compactionFoldsDeltaIntoPackedKeys() {
+        PrefixIndex index = index("alice", "bob", "carol");
+        index.remove("bob");
+        index.add("dave");
+        index.add("alice");
+        long packedBytes = index.packedBytes();
+
+        index.compact();
+
+        assertThat(index.pendingChanges()).isZero();
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.suggest("", 10)).containsExactly("alice", "carol", "dave");
+        assertThat(index.packedBytes()).isNotEqualTo(packedBytes);
+    }
+
+    @Test
+    void keepsWritesMadeDuringRebuild() {
+        PrefixIndex index = index("alice", "bob");
+        Stream<String> source = Stream.of("alice", "bob", "carol").peek(key -> {
+            if (key.equals("bob")) {
+                index.remove("alice");
+                index.add("zed");
+            }
+        });
+
+        index.rebuild(source);
+
+        assertThat(index.suggest("", 10)).containsExactly("bob", "carol", "zed");
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void failedRebuildKeepsIndexAndStopsLoggingWrites() {
+        PrefixIndex index = index("alice");
+        Stream<String> failing = Stream.of("bob").map(key -> {
+            throw new IllegalStateException("source failed");
+        });
+
+        assertThatThrownBy(() -> index.rebuild(failing)).isInstanceOf(IllegalStateException.class);
+        assertThat(index.suggest("", 10)).containsExactly("alice");
+
+        index.add("carol");
+        index.rebuild(Stream.of("dave"));
+
+        assertThat(index.suggest("", 10)).containsExactly("dave");
+    }
+
+    private static PrefixIndex index(String... keys) {
+        PrefixIndex index = new PrefixIndex();
+        index.rebuild(List.of(keys).stream());
+        return index;
+    }
+}
@@ -0,0 +1,71 @@
+package pl.krutkowski.users.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RebuildableBloomFilterTests {
+
+    private static final double FALSE_POSITIVE_RATE = 0.000_001;
+    private static final long CAPACITY = 1_000;
+
+    @Test
+    void answersMaybeUntilFirstRebuild() {
+        RebuildableBloomFilter filter = new RebuildableBloomFilter(FALSE_POSITIVE_RATE);
+
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain("anyone")).isTrue();
+    }
+
+    @Test
+    void ignoresCase() {
+        RebuildableBloomFilter filter = new RebuildableBloomFilter(FALSE_POSITIVE_RATE);
+        filter.rebuild(Stream.of("Alice"), CAPACITY);
+        filter.put("BOB");
+
+        assertThat(filter.mightContain("ALICE")).isTrue();
+        assertThat(filter.mightContain("bob")).isTrue();
+        assertThat(filter.mightContain("carol")).isFalse();
+    }
+
+    @Test
+    void keepsKeyPutWhileRebuildReadsItsSource() {
+        RebuildableBloomFilter filter = new RebuildableBloomFilter(FALSE_POSITIVE_RATE);
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+
+        filter.rebuild(Stream.of("alice", "bob").peek(key -> filter.put("carol")), CAPACITY);
+
+        assertThat(filter.mightContain("carol")).isTrue();
+    }
+
+    @Test
+    void replaysUncommittedKeyAcrossTwoRebuilds() {
+        RebuildableBloomFilter filter = new RebuildableBloomFilter(FALSE_POSITIVE_RATE);
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+        // Put before its transaction commits, so the next rebuild reads a source without it
+        filter.put("carol");
+
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+        assertThat(filter.mightContain("carol")).isTrue();
+
+        // The rebuild after that may still have read the source before the commit
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+        assertThat(filter.mightContain("carol")).isTrue();
+    }
+
+    @Test
+    void forgetsRolledBackKeyOnceItIsTwoRebuildsOld() {
+        RebuildableBloomFilter filter = new RebuildableBloomFilter(FALSE_POSITIVE_RATE);
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+        filter.put("carol");
+
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+        filter.rebuild(Stream.of("alice"), CAPACITY);
+
+        assertThat(filter.mightContain("carol")).isFalse();
+        assertThat(filter.mightContain("alice")).isTrue();
+    }
+}
@@ -0,0 +1,122 @@
+package pl.krutkowski.users.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCountersTests {
+
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+    private static final int BUCKETS = 5;
+    private static final long NOW = 1_000_000_000L;
+    private static final int THREADS = 16;
+    private static final int INCREMENTS_PER_THREAD = 10_000;
+
+    @Test
+    void countsEveryIncrementOfOneKeyFromManyThreads() throws Exception {
+        SlidingWindowCounters counters = new SlidingWindowCounters(WINDOW, BUCKETS, 1_000, 5);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < INCREMENTS_PER_THREAD; i++)
+                        counters.increment(42, NOW);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers)
+                worker.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(counters.get(42, NOW)).isEqualTo(THREADS * INCREMENTS_PER_THREAD);
+    }
+
+    @Test
+    void keepsSizeBoundedByEvictingOtherKeys() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(WINDOW, BUCKETS, 100, 5);
+
+        for (long key = 0; key < 10_000; key++)
+            counters.increment(key, NOW);
+
+        assertThat(counters.size()).isLessThanOrEqualTo(100);
+        assertThat(counters.evictionCount()).isGreaterThanOrEqualTo(10_000 - 100);
+    }
+
+    @Test
+    void evictsKeysNotCountedAgainFirst() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(WINDOW, BUCKETS, 100, 5);
+        counters.increment(-1, NOW);
+        counters.increment(-1, NOW);
+
+        for (long key = 0; key < 150; key++)
+            counters.increment(key, NOW);
+
+        assertThat(counters.get(-1, NOW)).isEqualTo(2);
+        assertThat(counters.get(0, NOW)).isZero();
+    }
+
+    @Test
+    void neverEvictsKeyAtThreshold() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(WINDOW, BUCKETS, 100, 5);
+        for (int attempt = 0; attempt < 5; attempt++)
+            counters.increment(-1, NOW);
+
+        for (long key = 0; key < 100_000; key++)
+            counters.increment(key, NOW);
+
+        assertThat(counters.get(-1, NOW)).isEqualTo(5);
+        assertThat(counters.size()).isLessThanOrEqualTo(101);
+    }
+
+    @Test
+    void capsKeysAtThresholdATenthPastMaximumSize() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(WINDOW, BUCKETS, 100, 5);
+
+        for (long key = 0; key < 10_000; key++) {
+            for (int attempt = 0; attempt < 5; attempt++)
+                counters.increment(key, NOW);
+        }
+
+        assertThat(counters.size()).isLessThanOrEqualTo(110);
+        assertThat(counters.get(9_999, NOW)).isEqualTo(5);
+    }
+
+    @Test
+    void evictsCountedAgainKeyOnceItsEventsLeaveTheWindow() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(WINDOW, BUCKETS, 100, 5);
+        for (int attempt = 0; attempt < 5; attempt++)
+            counters.increment(-1, NOW);
+
+        long later = NOW + WINDOW.toMillis() * 2;
+        for (long key = 0; key < 150; key++)
+            counters.increment(key, later);
+
+        assertThat(counters.get(-1, later)).isZero();
+        assertThat(counters.size()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void removesExpiredWindows() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(WINDOW, BUCKETS, 100, 5);
+        counters.increment(1, NOW);
+
+        counters.removeExpired(NOW + WINDOW.toMillis() + 1);
+
+        assertThat(counters.size()).isZero();
+        assertThat(counters.get(1, NOW)).isZero();
+    }
+}
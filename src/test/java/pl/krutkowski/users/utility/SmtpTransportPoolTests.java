@@ -0,0 +1,65 @@
+package pl.krutkowski.users.utility;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SmtpTransportPoolTests {
+
+    private static final int MESSAGES = 20;
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final Session session = Session.getInstance(new Properties(), null);
+    private final SmtpTransportPool pool = new SmtpTransportPool(session, "smtp", "localhost",
+            ServerSetupTest.SMTP.getPort(), "", "", 2, 100, Duration.ZERO);
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void sendsManyMessagesOverOneConnection() throws Exception {
+        for (int i = 0; i < MESSAGES; i++)
+            pool.send(message(i));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(MESSAGES);
+        assertThat(pool.getOpenConnections()).isOne();
+        assertThat(pool.isHealthy()).isTrue();
+    }
+
+    @Test
+    void reconnectsWhenServerDropsConnection() throws Exception {
+        pool.send(message(0));
+        greenMail.reset();
+
+        pool.send(message(1));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(pool.getOpenConnections()).isOne();
+    }
+
+    private Message message(int i) throws MessagingException {
+        Message message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("support@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("pool" + i + "@example.com"));
+        message.setSubject("Pool");
+        message.setText("Message " + i);
+        message.saveChanges();
+        return message;
+    }
+}
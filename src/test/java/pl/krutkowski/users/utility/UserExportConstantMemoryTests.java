@@ -0,0 +1,81 @@
+package pl.krutkowski.users.utility;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pl.krutkowski.users.domain.User;
+import pl.krutkowski.users.enumeration.ExportFormat;
+
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pl.krutkowski.users.enumeration.Role.ROLE_USER;
+
+/**
+ * Runs in its own surefire execution with a 32 MB heap, far less than one million materialized users need.
+ */
+class UserExportConstantMemoryTests {
+
+    private static final long ROWS = 1_000_000;
+
+    private final UserExportWriter userExportWriter = new UserExportWriter(new ObjectMapper());
+
+    @Test
+    void exportsOneMillionRowsAsNdjson() throws Exception {
+        CountingOutputStream outputStream = new CountingOutputStream();
+
+        long rows = userExportWriter.write(users(), ExportFormat.NDJSON, outputStream);
+
+        assertThat(rows).isEqualTo(ROWS);
+        assertThat(outputStream.lines).isEqualTo(ROWS);
+    }
+
+    @Test
+    void exportsOneMillionRowsAsCsv() throws Exception {
+        CountingOutputStream outputStream = new CountingOutputStream();
+
+        long rows = userExportWriter.write(users(), ExportFormat.CSV, outputStream);
+
+        assertThat(rows).isEqualTo(ROWS);
+        assertThat(outputStream.lines).isEqualTo(ROWS + 1);
+    }
+
+    private Stream<User> users() {
+        return LongStream.rangeClosed(1, ROWS).mapToObj(id -> {
+            User user = new User();
+            user.setId(id);
+            user.setUserId(String.valueOf(id));
+            user.setFirstName("First, " + id);
+            user.setLastName("Last \"" + id + "\"");
+            user.setUsername("user" + id);
+            user.setEmail("user" + id + "@example.com");
+            user.setJoinDate(new Date());
+            user.setActive(true);
+            user.setNotLocked(true);
+            user.setRole(ROLE_USER.name());
+            user.setAuthorities(ROLE_USER.getAuthorities());
+            return user;
+        });
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n')
+                lines++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] == '\n')
+                    lines++;
+            }
+        }
+    }
+}